@@ -1,11 +1,20 @@
 package com.udacity.stockhawk;
 
 import android.app.Application;
+import android.net.http.HttpResponseCache;
+
+import com.udacity.stockhawk.data.WatchlistStore;
+
+import java.io.File;
+import java.io.IOException;
 
 import timber.log.Timber;
 
 public class StockHawkApp extends Application {
 
+    private static final String HTTP_CACHE_DIR = "http";
+    private static final long HTTP_CACHE_SIZE = 10 * 1024 * 1024;
+
     @Override
     public void onCreate() {
         super.onCreate();
@@ -14,5 +23,16 @@ public class StockHawkApp extends Application {
             Timber.uprootAll();
             Timber.plant(new Timber.DebugTree());
         }
+
+        WatchlistStore.warmUp(this);
+
+        // Serves quote and history responses from disk while they are fresh, and
+        // revalidates stale ones with their ETag or Last-Modified date. History
+        // requests say how stale a response they accept; see YahooQuoteSource.
+        try {
+            HttpResponseCache.install(new File(getCacheDir(), HTTP_CACHE_DIR), HTTP_CACHE_SIZE);
+        } catch (IOException exception) {
+            Timber.e(exception, "HTTP response cache not installed");
+        }
     }
 }
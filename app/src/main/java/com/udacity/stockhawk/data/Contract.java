@@ -5,12 +5,21 @@ import android.net.Uri;
 import android.provider.BaseColumns;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
 
 public final class Contract {
 
-    static final String AUTHORITY = "com.udacity.stockhawk";
+    public static final String AUTHORITY = "com.udacity.stockhawk";
     static final String PATH_QUOTE = "quote";
     static final String PATH_QUOTE_WITH_SYMBOL = "quote/*";
+    static final String PATH_QUOTE_LIST = "quote_list";
+    static final String PATH_HISTORY = "history";
+    static final String PATH_HISTORY_WITH_SYMBOL = "history/*";
+    static final String PATH_HISTORY_LATEST = "history_latest";
+    static final String PATH_WATCHLIST = "watchlist";
+    static final String PATH_WATCHLIST_WITH_ID = "watchlist/#";
+    static final String PATH_WATCHLIST_NAME = "watchlist_name";
+    static final String PATH_WATCHLIST_NAME_WITH_ID = "watchlist_name/#";
     private static final Uri BASE_URI = Uri.parse("content://" + AUTHORITY);
 
     private Contract() {
@@ -21,6 +30,12 @@ public final class Contract {
 
         public static final Uri URI = BASE_URI.buildUpon().appendPath(PATH_QUOTE).build();
 
+        /**
+         * Notified once per write that changes any quote. Cursors over the whole
+         * table watch this URI; cursors over one symbol watch {@link #makeUriForStock}.
+         */
+        public static final Uri LIST_URI = BASE_URI.buildUpon().appendPath(PATH_QUOTE_LIST).build();
+
         public static final String TABLE_NAME = "quotes";
 
         public static final String COLUMN_SYMBOL = "symbol";
@@ -61,6 +76,62 @@ public final class Contract {
                 COLUMN_DAY_HIGHEST
         );
 
+        /**
+         * Columns rendered by each row of the stock list.
+         */
+        public static final ImmutableList<String> LIST_COLUMNS = ImmutableList.of(
+                COLUMN_SYMBOL,
+                COLUMN_PRICE,
+                COLUMN_ABSOLUTE_CHANGE,
+                COLUMN_PERCENTAGE_CHANGE
+        );
+
+        /**
+         * Columns rendered by each row of the home screen widget.
+         */
+        public static final ImmutableList<String> WIDGET_COLUMNS = ImmutableList.of(
+                COLUMN_SYMBOL,
+                COLUMN_PRICE,
+                COLUMN_ABSOLUTE_CHANGE
+        );
+
+        /**
+         * Columns rendered above the charts on the detail screen.
+         */
+        public static final ImmutableList<String> DETAIL_HEADER_COLUMNS = ImmutableList.of(
+                COLUMN_STOCK_NAME,
+                COLUMN_PRICE,
+                COLUMN_ABSOLUTE_CHANGE,
+                COLUMN_DAY_LOWEST,
+                COLUMN_DAY_HIGHEST
+        );
+
+        /**
+         * Columns read by {@link QuoteCache}. The list, the widget and the detail
+         * header render from the rows it holds rather than from their own cursors,
+         * so the table is read once for all three, keyed by symbol.
+         */
+        public static final ImmutableList<String> SNAPSHOT_COLUMNS = ImmutableSet.<String>builder()
+                .add(COLUMN_SYMBOL)
+                .addAll(LIST_COLUMNS)
+                .addAll(WIDGET_COLUMNS)
+                .addAll(DETAIL_HEADER_COLUMNS)
+                .build()
+                .asList();
+
+        /**
+         * The encoded history series drawn by the detail screen charts.
+         */
+        public static final ImmutableList<String> DETAIL_HISTORY_COLUMNS = ImmutableList.of(
+                COLUMN_MONTH_HISTORY,
+                COLUMN_WEEK_HISTORY,
+                COLUMN_DAY_HISTORY
+        );
+
+        public static final int POSITION_HISTORY_MONTH = 0;
+        public static final int POSITION_HISTORY_WEEK = 1;
+        public static final int POSITION_HISTORY_DAY = 2;
+
         public static Uri makeUriForStock(String symbol) {
             return URI.buildUpon().appendPath(symbol).build();
         }
@@ -72,4 +143,132 @@ public final class Contract {
 
     }
 
+    /**
+     * One closing price per row, keyed by symbol, bar interval and bar timestamp.
+     * Sync appends new bars here and the quotes table keeps only the encoded
+     * series shown on the charts.
+     */
+    @SuppressWarnings("unused")
+    public static final class History {
+
+        public static final Uri URI = BASE_URI.buildUpon().appendPath(PATH_HISTORY).build();
+
+        /**
+         * Returns one row per symbol and interval holding the timestamp of the newest stored bar.
+         */
+        public static final Uri LATEST_URI = BASE_URI.buildUpon().appendPath(PATH_HISTORY_LATEST).build();
+
+        public static final String TABLE_NAME = "history";
+
+        public static final String COLUMN_SYMBOL = "symbol";
+        /**
+         * Name of the {@code yahoofinance.histquotes.Interval} the bar belongs to.
+         */
+        public static final String COLUMN_INTERVAL = "interval";
+        /**
+         * Start of the bar, in milliseconds.
+         */
+        public static final String COLUMN_TIMESTAMP = "ts";
+        /**
+         * Closing price in fixed-point units of 1/{@link com.udacity.stockhawk.utils.HistoryCodec#PRICE_SCALE}.
+         */
+        public static final String COLUMN_CLOSE = "close";
+
+        public static final int POSITION_SYMBOL = 0;
+        public static final int POSITION_INTERVAL = 1;
+        public static final int POSITION_TIMESTAMP = 2;
+        public static final int POSITION_CLOSE = 3;
+
+        public static final ImmutableList<String> HISTORY_COLUMNS = ImmutableList.of(
+                COLUMN_SYMBOL,
+                COLUMN_INTERVAL,
+                COLUMN_TIMESTAMP,
+                COLUMN_CLOSE
+        );
+
+        public static Uri makeUriForStock(String symbol) {
+            return URI.buildUpon().appendPath(symbol).build();
+        }
+
+        static String getStockFromUri(Uri queryUri) {
+            return queryUri.getLastPathSegment();
+        }
+    }
+
+    /**
+     * The symbols of each watchlist, one row per symbol, numbered in the order the
+     * user arranged them. Rows are keyed by list and position, so a list is read in
+     * order straight off the primary key.
+     * <p>
+     * Lists are not joined with their quotes here: the screens read both from
+     * memory, and {@link QuoteSnapshot#getRows(java.util.Collection)} looks up
+     * each symbol of a list in the snapshot's symbol map.
+     */
+    @SuppressWarnings("unused")
+    public static final class Watchlist {
+
+        public static final Uri URI = BASE_URI.buildUpon().appendPath(PATH_WATCHLIST).build();
+
+        public static final String TABLE_NAME = "watchlist";
+
+        public static final String COLUMN_LIST_ID = "list_id";
+        public static final String COLUMN_SYMBOL = "symbol";
+        /**
+         * Zero-based index of the symbol within its list.
+         */
+        public static final String COLUMN_POSITION = "position";
+
+        public static final int POSITION_LIST_ID = 0;
+        public static final int POSITION_SYMBOL = 1;
+
+        public static final ImmutableList<String> WATCHLIST_COLUMNS = ImmutableList.of(
+                COLUMN_LIST_ID,
+                COLUMN_SYMBOL,
+                COLUMN_POSITION
+        );
+
+        /**
+         * Queries return the symbols of the list in order. A bulk insert replaces the
+         * list with the given symbols, numbered in array order.
+         */
+        public static Uri makeUriForList(long listId) {
+            return URI.buildUpon().appendPath(String.valueOf(listId)).build();
+        }
+
+        static long getListIdFromUri(Uri uri) {
+            return Long.parseLong(uri.getPathSegments().get(1));
+        }
+    }
+
+    /**
+     * The name of each watchlist, keyed by the list id of its {@link Watchlist} rows.
+     */
+    @SuppressWarnings("unused")
+    public static final class WatchlistName implements BaseColumns {
+
+        public static final Uri URI = BASE_URI.buildUpon().appendPath(PATH_WATCHLIST_NAME).build();
+
+        public static final String TABLE_NAME = "watchlist_names";
+
+        public static final String COLUMN_NAME = "name";
+
+        public static final int POSITION_ID = 0;
+        public static final int POSITION_NAME = 1;
+
+        public static final ImmutableList<String> WATCHLIST_NAME_COLUMNS = ImmutableList.of(
+                _ID,
+                COLUMN_NAME
+        );
+
+        /**
+         * Deleting it deletes the list, symbols included.
+         */
+        public static Uri makeUriForList(long listId) {
+            return URI.buildUpon().appendPath(String.valueOf(listId)).build();
+        }
+
+        static long getListIdFromUri(Uri uri) {
+            return Long.parseLong(uri.getLastPathSegment());
+        }
+    }
 }
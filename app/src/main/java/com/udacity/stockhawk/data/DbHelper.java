@@ -1,17 +1,29 @@
 package com.udacity.stockhawk.data;
 
+import android.content.ContentValues;
 import android.content.Context;
+import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
 
+import com.udacity.stockhawk.data.Contract.History;
 import com.udacity.stockhawk.data.Contract.Quote;
+import com.udacity.stockhawk.data.Contract.Watchlist;
+import com.udacity.stockhawk.data.Contract.WatchlistName;
+import com.udacity.stockhawk.utils.HistoryCodec;
+
+import yahoofinance.histquotes.Interval;
 
 
 class DbHelper extends SQLiteOpenHelper {
 
 
     private static final String NAME = "StockHawk.db";
-    private static final int VERSION = 2;
+    private static final int VERSION = 6;
+    private static final int VERSION_TEXT_HISTORY = 2;
+    private static final int VERSION_NO_HISTORY_TABLE = 3;
+    private static final int VERSION_NO_WATCHLIST_TABLE = 4;
+    private static final int VERSION_NO_WATCHLIST_NAMES = 5;
 
 
     DbHelper(Context context) {
@@ -20,15 +32,22 @@ class DbHelper extends SQLiteOpenHelper {
 
     @Override
     public void onCreate(SQLiteDatabase db) {
+        createQuoteTable(db);
+        createHistoryTable(db);
+        createWatchlistTable(db);
+        createWatchlistNameTable(db);
+    }
+
+    private void createQuoteTable(SQLiteDatabase db) {
         String builder = "CREATE TABLE " + Quote.TABLE_NAME + " (" +
                 Quote._ID + " INTEGER PRIMARY KEY AUTOINCREMENT, " +
                 Quote.COLUMN_SYMBOL + " TEXT NOT NULL, " +
                 Quote.COLUMN_PRICE + " REAL NOT NULL, " +
                 Quote.COLUMN_ABSOLUTE_CHANGE + " REAL NOT NULL, " +
                 Quote.COLUMN_PERCENTAGE_CHANGE + " REAL NOT NULL, " +
-                Quote.COLUMN_MONTH_HISTORY + " TEXT NOT NULL, " +
-                Quote.COLUMN_DAY_HISTORY + " TEXT NOT NULL, " +
-                Quote.COLUMN_WEEK_HISTORY + " TEXT NOT NULL, " +
+                Quote.COLUMN_MONTH_HISTORY + " BLOB NOT NULL, " +
+                Quote.COLUMN_DAY_HISTORY + " BLOB NOT NULL, " +
+                Quote.COLUMN_WEEK_HISTORY + " BLOB NOT NULL, " +
                 Quote.COLUMN_STOCK_NAME + " TEXT NOT NULL, " +
                 Quote.COLUMN_DAY_HIGHEST + " REAL NOT NULL, " +
                 Quote.COLUMN_DAY_LOWEST + " REAL NOT NULL, " +
@@ -38,11 +57,155 @@ class DbHelper extends SQLiteOpenHelper {
 
     }
 
+    private void createHistoryTable(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + History.TABLE_NAME + " (" +
+                History.COLUMN_SYMBOL + " TEXT NOT NULL, " +
+                History.COLUMN_INTERVAL + " TEXT NOT NULL, " +
+                History.COLUMN_TIMESTAMP + " INTEGER NOT NULL, " +
+                History.COLUMN_CLOSE + " INTEGER NOT NULL, " +
+                "PRIMARY KEY (" + History.COLUMN_SYMBOL + ", " +
+                History.COLUMN_INTERVAL + ", " +
+                History.COLUMN_TIMESTAMP + ")) WITHOUT ROWID;");
+    }
+
+    /**
+     * Keyed by (list, position) so a list is scanned in order without a sort. The
+     * second index keeps a symbol from appearing twice in a list.
+     */
+    private void createWatchlistTable(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + Watchlist.TABLE_NAME + " (" +
+                Watchlist.COLUMN_LIST_ID + " INTEGER NOT NULL, " +
+                Watchlist.COLUMN_POSITION + " INTEGER NOT NULL, " +
+                Watchlist.COLUMN_SYMBOL + " TEXT NOT NULL, " +
+                "PRIMARY KEY (" + Watchlist.COLUMN_LIST_ID + ", " +
+                Watchlist.COLUMN_POSITION + ")) WITHOUT ROWID;");
+        db.execSQL("CREATE UNIQUE INDEX " + Watchlist.TABLE_NAME + "_symbol ON " + Watchlist.TABLE_NAME + " (" +
+                Watchlist.COLUMN_LIST_ID + ", " +
+                Watchlist.COLUMN_SYMBOL + ");");
+    }
+
+    private void createWatchlistNameTable(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + WatchlistName.TABLE_NAME + " (" +
+                WatchlistName._ID + " INTEGER PRIMARY KEY, " +
+                WatchlistName.COLUMN_NAME + " TEXT NOT NULL);");
+    }
+
     @Override
     public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
 
-        db.execSQL(" DROP TABLE IF EXISTS " + Quote.TABLE_NAME);
+        if (oldVersion < VERSION_TEXT_HISTORY) {
+            db.execSQL(" DROP TABLE IF EXISTS " + Quote.TABLE_NAME);
+            db.execSQL(" DROP TABLE IF EXISTS " + History.TABLE_NAME);
+            onCreate(db);
+            return;
+        }
+
+        if (oldVersion <= VERSION_TEXT_HISTORY) {
+            migrateHistoryToBlobs(db);
+        }
+
+        if (oldVersion <= VERSION_NO_HISTORY_TABLE) {
+            createHistoryTable(db);
+            seedHistoryTable(db);
+        }
+
+        if (oldVersion <= VERSION_NO_WATCHLIST_TABLE) {
+            createWatchlistTable(db);
+        }
+
+        if (oldVersion <= VERSION_NO_WATCHLIST_NAMES) {
+            // WatchlistStore names the existing list when it first finds it unnamed.
+            createWatchlistNameTable(db);
+        }
+    }
+
+    /**
+     * Rebuilds the quotes table with BLOB history columns, re-encoding the
+     * {@code millis:close$} text of every existing row with {@link HistoryCodec}.
+     */
+    private void migrateHistoryToBlobs(SQLiteDatabase db) {
+        String legacyTable = Quote.TABLE_NAME + "_text_history";
+        db.execSQL("ALTER TABLE " + Quote.TABLE_NAME + " RENAME TO " + legacyTable);
+        createQuoteTable(db);
+
+        Cursor cursor = db.query(legacyTable, null, null, null, null, null, null);
+        try {
+            ContentValues values = new ContentValues();
+            while (cursor.moveToNext()) {
+                values.clear();
+                values.put(Quote._ID, getLong(cursor, Quote._ID));
+                values.put(Quote.COLUMN_SYMBOL, getString(cursor, Quote.COLUMN_SYMBOL));
+                values.put(Quote.COLUMN_PRICE, getFloat(cursor, Quote.COLUMN_PRICE));
+                values.put(Quote.COLUMN_ABSOLUTE_CHANGE, getFloat(cursor, Quote.COLUMN_ABSOLUTE_CHANGE));
+                values.put(Quote.COLUMN_PERCENTAGE_CHANGE, getFloat(cursor, Quote.COLUMN_PERCENTAGE_CHANGE));
+                values.put(Quote.COLUMN_STOCK_NAME, getString(cursor, Quote.COLUMN_STOCK_NAME));
+                values.put(Quote.COLUMN_DAY_HIGHEST, getFloat(cursor, Quote.COLUMN_DAY_HIGHEST));
+                values.put(Quote.COLUMN_DAY_LOWEST, getFloat(cursor, Quote.COLUMN_DAY_LOWEST));
+                values.put(Quote.COLUMN_MONTH_HISTORY,
+                        HistoryCodec.fromLegacyString(getString(cursor, Quote.COLUMN_MONTH_HISTORY)));
+                values.put(Quote.COLUMN_WEEK_HISTORY,
+                        HistoryCodec.fromLegacyString(getString(cursor, Quote.COLUMN_WEEK_HISTORY)));
+                values.put(Quote.COLUMN_DAY_HISTORY,
+                        HistoryCodec.fromLegacyString(getString(cursor, Quote.COLUMN_DAY_HISTORY)));
+                db.insert(Quote.TABLE_NAME, null, values);
+            }
+        } finally {
+            cursor.close();
+        }
+
+        db.execSQL("DROP TABLE " + legacyTable);
+    }
+
+    /**
+     * Fills the new history table with the bars of the series already stored on
+     * the quote rows, so the charts survive the next sync, which re-encodes them
+     * from this table, and only bars newer than these are requested.
+     */
+    private void seedHistoryTable(SQLiteDatabase db) {
+        Cursor cursor = db.query(Quote.TABLE_NAME, new String[]{
+                Quote.COLUMN_SYMBOL,
+                Quote.COLUMN_MONTH_HISTORY,
+                Quote.COLUMN_WEEK_HISTORY,
+                Quote.COLUMN_DAY_HISTORY
+        }, null, null, null, null, null);
+        try {
+            ContentValues values = new ContentValues();
+            while (cursor.moveToNext()) {
+                String symbol = cursor.getString(0);
+                seedSeries(db, values, symbol, Interval.MONTHLY, cursor.getBlob(1));
+                seedSeries(db, values, symbol, Interval.WEEKLY, cursor.getBlob(2));
+                seedSeries(db, values, symbol, Interval.DAILY, cursor.getBlob(3));
+            }
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private static void seedSeries(SQLiteDatabase db, ContentValues values, String symbol,
+                                   Interval interval, byte[] encoded) {
+        int size = HistoryCodec.size(encoded);
+        long[] times = new long[size];
+        long[] closes = new long[size];
+        HistoryCodec.decodeFixedPointInto(encoded, times, closes);
+        for (int i = 0; i < size; i++) {
+            values.clear();
+            values.put(History.COLUMN_SYMBOL, symbol);
+            values.put(History.COLUMN_INTERVAL, interval.name());
+            values.put(History.COLUMN_TIMESTAMP, times[i]);
+            values.put(History.COLUMN_CLOSE, closes[i]);
+            db.insertWithOnConflict(History.TABLE_NAME, null, values, SQLiteDatabase.CONFLICT_IGNORE);
+        }
+    }
+
+    private static long getLong(Cursor cursor, String column) {
+        return cursor.getLong(cursor.getColumnIndexOrThrow(column));
+    }
+
+    private static float getFloat(Cursor cursor, String column) {
+        return cursor.getFloat(cursor.getColumnIndexOrThrow(column));
+    }
 
-        onCreate(db);
+    private static String getString(Cursor cursor, String column) {
+        return cursor.getString(cursor.getColumnIndexOrThrow(column));
     }
 }
@@ -7,61 +7,11 @@ import android.preference.PreferenceManager;
 import com.udacity.stockhawk.R;
 import com.udacity.stockhawk.sync.QuoteSyncJob;
 
-import java.util.Arrays;
-import java.util.HashSet;
-import java.util.Set;
-
 public final class PrefUtils {
 
     private PrefUtils() {
     }
 
-    public static Set<String> getStocks(Context context) {
-        String stocksKey = context.getString(R.string.pref_stocks_key);
-        String initializedKey = context.getString(R.string.pref_stocks_initialized_key);
-        String[] defaultStocksList = context.getResources().getStringArray(R.array.default_stocks);
-
-        HashSet<String> defaultStocks = new HashSet<>(Arrays.asList(defaultStocksList));
-        SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(context);
-
-        boolean initialized = prefs.getBoolean(initializedKey, false);
-
-        if (!initialized) {
-            SharedPreferences.Editor editor = prefs.edit();
-            editor.putBoolean(initializedKey, true);
-            editor.putStringSet(stocksKey, defaultStocks);
-            editor.apply();
-            return defaultStocks;
-        }
-        return prefs.getStringSet(stocksKey, new HashSet<String>());
-
-    }
-
-    private static int editStockPref(Context context, String symbol, Boolean add) {
-        String key = context.getString(R.string.pref_stocks_key);
-        Set<String> stocks = getStocks(context);
-
-        if (add) {
-            stocks.add(symbol);
-        } else {
-            stocks.remove(symbol);
-        }
-
-        SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(context);
-        SharedPreferences.Editor editor = prefs.edit();
-        editor.putStringSet(key, stocks);
-        editor.apply();
-        return stocks.size();
-    }
-
-    public static void addStock(Context context, String symbol) {
-        editStockPref(context, symbol, true);
-    }
-
-    public static int removeStock(Context context, String symbol) {
-        return editStockPref(context, symbol, false);
-    }
-
     public static String getDisplayMode(Context context) {
         String key = context.getString(R.string.pref_display_mode_key);
         String defaultValue = context.getString(R.string.pref_display_mode_default);
@@ -89,6 +39,20 @@ public final class PrefUtils {
         editor.apply();
     }
 
+    /**
+     * @return the id of the watchlist last shown, which the widget shows too.
+     */
+    public static long getSelectedList(Context context) {
+        SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(context);
+        return prefs.getLong(context.getString(R.string.pref_selected_list_key), WatchlistStore.DEFAULT_LIST_ID);
+    }
+
+    public static void setSelectedList(Context context, long listId) {
+        PreferenceManager.getDefaultSharedPreferences(context).edit()
+                .putLong(context.getString(R.string.pref_selected_list_key), listId)
+                .apply();
+    }
+
     /**
      * @param context {@link Context} to fetch defaultSharedPreferences
      * @return the stock status integer type
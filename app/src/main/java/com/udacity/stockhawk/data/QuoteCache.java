@@ -0,0 +1,227 @@
+package com.udacity.stockhawk.data;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.os.AsyncTask;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.MainThread;
+import android.support.annotation.Nullable;
+import android.support.annotation.WorkerThread;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import timber.log.Timber;
+
+/**
+ * Process-wide {@link QuoteSnapshot} of the quotes table. The sync publishes the
+ * rows it has written and the screens read the current snapshot instead of
+ * querying the provider; the table is read only once, to warm the cache after
+ * the process starts.
+ * <p>
+ * Listeners are always called on the main thread, and only when the snapshot
+ * actually changed.
+ */
+public final class QuoteCache {
+
+    public interface Listener {
+        void onQuotesChanged(QuoteSnapshot snapshot);
+    }
+
+    private static final AtomicReference<QuoteSnapshot> current = new AtomicReference<>();
+    private static final AtomicBoolean loading = new AtomicBoolean(false);
+    private static final ConcurrentLinkedQueue<QuoteRow> publishedWhileCold = new ConcurrentLinkedQueue<>();
+    private static final CopyOnWriteArrayList<Listener> listeners = new CopyOnWriteArrayList<>();
+    private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private QuoteCache() {
+    }
+
+    /**
+     * @return the current snapshot, or null until the cache has been warmed.
+     */
+    @Nullable
+    public static QuoteSnapshot peek() {
+        return current.get();
+    }
+
+    /**
+     * @return the current snapshot, reading the quotes table first if the cache is cold.
+     */
+    @WorkerThread
+    public static QuoteSnapshot get(Context context) {
+        QuoteSnapshot snapshot = current.get();
+        return snapshot != null ? snapshot : load(context.getApplicationContext());
+    }
+
+    /**
+     * Registers {@code listener} and delivers the current snapshot to it, warming
+     * the cache in the background first if needed.
+     */
+    @MainThread
+    public static void addListener(Context context, final Listener listener) {
+        listeners.add(listener);
+        QuoteSnapshot snapshot = current.get();
+        if (snapshot != null) {
+            deliver(listener, snapshot);
+            return;
+        }
+        final Context appContext = context.getApplicationContext();
+        if (loading.compareAndSet(false, true)) {
+            AsyncTask.THREAD_POOL_EXECUTOR.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        load(appContext);
+                    } finally {
+                        loading.set(false);
+                    }
+                }
+            });
+        }
+    }
+
+    @MainThread
+    public static void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Adds or replaces {@code rows} once they have been written to the quotes table.
+     */
+    public static void publish(Collection<QuoteRow> rows) {
+        if (current.get() == null) {
+            publishedWhileCold.addAll(rows);
+            if (current.get() == null) {
+                // The load that warms the cache applies them on top of what it reads.
+                return;
+            }
+            // A load finished in the meantime and may have drained the queue before
+            // these rows were added; apply whatever it left behind.
+            rows = drainPublishedWhileCold();
+            if (rows.isEmpty()) {
+                return;
+            }
+        }
+        apply(rows);
+    }
+
+    private static void apply(Collection<QuoteRow> rows) {
+        QuoteSnapshot previous;
+        QuoteSnapshot updated;
+        do {
+            previous = current.get();
+            updated = previous.withRows(rows);
+        } while (!current.compareAndSet(previous, updated));
+        if (updated != previous) {
+            notifyListeners(updated);
+        }
+    }
+
+    /**
+     * Drops {@code symbol} once it has been deleted from the quotes table.
+     */
+    public static void remove(String symbol) {
+        QuoteSnapshot previous;
+        QuoteSnapshot updated;
+        do {
+            previous = current.get();
+            if (previous == null) {
+                return;
+            }
+            updated = previous.without(symbol);
+        } while (!current.compareAndSet(previous, updated));
+        if (updated != previous) {
+            notifyListeners(updated);
+        }
+    }
+
+    @WorkerThread
+    private static QuoteSnapshot load(Context context) {
+        List<QuoteRow> rows = query(context);
+        List<QuoteRow> published = drainPublishedWhileCold();
+        QuoteSnapshot loaded = QuoteSnapshot.EMPTY.withRows(rows).withRows(published);
+        if (!current.compareAndSet(null, loaded)) {
+            // Another load got there first; apply the rows taken from the queue on top of it.
+            if (!published.isEmpty()) {
+                apply(published);
+            }
+            return current.get();
+        }
+        notifyListeners(loaded);
+
+        // Rows queued between the drain and the swap were left for this load.
+        List<QuoteRow> late = drainPublishedWhileCold();
+        if (!late.isEmpty()) {
+            apply(late);
+        }
+        return current.get();
+    }
+
+    private static List<QuoteRow> drainPublishedWhileCold() {
+        List<QuoteRow> rows = new ArrayList<>();
+        QuoteRow row;
+        while ((row = publishedWhileCold.poll()) != null) {
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    private static List<QuoteRow> query(Context context) {
+        Cursor cursor = context.getContentResolver().query(Contract.Quote.URI,
+                Contract.Quote.SNAPSHOT_COLUMNS.toArray(new String[]{}),
+                null, null, null);
+        if (cursor == null) {
+            Timber.e("Quotes could not be read");
+            return Collections.emptyList();
+        }
+        try {
+            int symbolColumn = cursor.getColumnIndexOrThrow(Contract.Quote.COLUMN_SYMBOL);
+            int nameColumn = cursor.getColumnIndexOrThrow(Contract.Quote.COLUMN_STOCK_NAME);
+            int priceColumn = cursor.getColumnIndexOrThrow(Contract.Quote.COLUMN_PRICE);
+            int absoluteChangeColumn = cursor.getColumnIndexOrThrow(Contract.Quote.COLUMN_ABSOLUTE_CHANGE);
+            int percentageChangeColumn = cursor.getColumnIndexOrThrow(Contract.Quote.COLUMN_PERCENTAGE_CHANGE);
+            int lowestColumn = cursor.getColumnIndexOrThrow(Contract.Quote.COLUMN_DAY_LOWEST);
+            int highestColumn = cursor.getColumnIndexOrThrow(Contract.Quote.COLUMN_DAY_HIGHEST);
+            List<QuoteRow> rows = new ArrayList<>(cursor.getCount());
+            while (cursor.moveToNext()) {
+                rows.add(new QuoteRow(
+                        cursor.getString(symbolColumn),
+                        cursor.getString(nameColumn),
+                        cursor.getFloat(priceColumn),
+                        cursor.getFloat(absoluteChangeColumn),
+                        cursor.getFloat(percentageChangeColumn),
+                        cursor.getFloat(lowestColumn),
+                        cursor.getFloat(highestColumn)));
+            }
+            return rows;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private static void notifyListeners(QuoteSnapshot snapshot) {
+        for (Listener listener : listeners) {
+            deliver(listener, snapshot);
+        }
+    }
+
+    private static void deliver(final Listener listener, final QuoteSnapshot snapshot) {
+        mainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                // Skip listeners removed since the post, and snapshots superseded since then.
+                if (listeners.contains(listener) && current.get() == snapshot) {
+                    listener.onQuotesChanged(snapshot);
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,57 @@
+package com.udacity.stockhawk.data;
+
+/**
+ * The scalar values of one stored quote, as shown by the list, the widget and
+ * the detail header. Instances are immutable.
+ */
+public final class QuoteRow {
+
+    public final String symbol;
+    public final String name;
+    public final float price;
+    public final float absoluteChange;
+    public final float percentageChange;
+    public final float dayLowest;
+    public final float dayHighest;
+
+    public QuoteRow(String symbol, String name, float price, float absoluteChange, float percentageChange,
+                    float dayLowest, float dayHighest) {
+        this.symbol = symbol;
+        this.name = name;
+        this.price = price;
+        this.absoluteChange = absoluteChange;
+        this.percentageChange = percentageChange;
+        this.dayLowest = dayLowest;
+        this.dayHighest = dayHighest;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof QuoteRow)) {
+            return false;
+        }
+        QuoteRow other = (QuoteRow) o;
+        return symbol.equals(other.symbol)
+                && (name == null ? other.name == null : name.equals(other.name))
+                && Float.compare(price, other.price) == 0
+                && Float.compare(absoluteChange, other.absoluteChange) == 0
+                && Float.compare(percentageChange, other.percentageChange) == 0
+                && Float.compare(dayLowest, other.dayLowest) == 0
+                && Float.compare(dayHighest, other.dayHighest) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = symbol.hashCode();
+        result = 31 * result + (name != null ? name.hashCode() : 0);
+        result = 31 * result + Float.floatToIntBits(price);
+        result = 31 * result + Float.floatToIntBits(absoluteChange);
+        result = 31 * result + Float.floatToIntBits(percentageChange);
+        result = 31 * result + Float.floatToIntBits(dayLowest);
+        result = 31 * result + Float.floatToIntBits(dayHighest);
+        return result;
+    }
+}
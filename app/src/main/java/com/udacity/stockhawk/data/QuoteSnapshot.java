@@ -0,0 +1,85 @@
+package com.udacity.stockhawk.data;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSortedMap;
+
+import java.util.Collection;
+import java.util.TreeMap;
+
+/**
+ * An immutable view of every stored quote, ordered by symbol. Updates produce a
+ * new snapshot and leave existing ones untouched, so a snapshot can be read from
+ * any thread without locking.
+ */
+public final class QuoteSnapshot {
+
+    static final QuoteSnapshot EMPTY = new QuoteSnapshot(ImmutableSortedMap.<String, QuoteRow>of());
+
+    private final ImmutableSortedMap<String, QuoteRow> rows;
+
+    private QuoteSnapshot(ImmutableSortedMap<String, QuoteRow> rows) {
+        this.rows = rows;
+    }
+
+    /**
+     * @return the quote for {@code symbol}, or null if it is not stored.
+     */
+    public QuoteRow get(String symbol) {
+        return rows.get(symbol);
+    }
+
+    /**
+     * @return every quote, ordered by symbol.
+     */
+    public ImmutableList<QuoteRow> getRows() {
+        return rows.values().asList();
+    }
+
+    /**
+     * @return the stored quotes of {@code symbols}, in the order given.
+     */
+    public ImmutableList<QuoteRow> getRows(Collection<String> symbols) {
+        ImmutableList.Builder<QuoteRow> ordered = ImmutableList.builder();
+        for (String symbol : symbols) {
+            QuoteRow row = rows.get(symbol);
+            if (row != null) {
+                ordered.add(row);
+            }
+        }
+        return ordered.build();
+    }
+
+    public int size() {
+        return rows.size();
+    }
+
+    /**
+     * @return a snapshot with {@code changed} added or replaced, or this snapshot
+     * if none of them differ from what it already holds.
+     */
+    QuoteSnapshot withRows(Collection<QuoteRow> changed) {
+        TreeMap<String, QuoteRow> updated = null;
+        for (QuoteRow row : changed) {
+            if (row.equals(rows.get(row.symbol))) {
+                continue;
+            }
+            if (updated == null) {
+                updated = new TreeMap<>(rows);
+            }
+            updated.put(row.symbol, row);
+        }
+        return updated == null ? this : new QuoteSnapshot(ImmutableSortedMap.copyOfSorted(updated));
+    }
+
+    /**
+     * @return a snapshot without {@code symbol}, or this snapshot if it does not hold it.
+     */
+    QuoteSnapshot without(String symbol) {
+        if (!rows.containsKey(symbol)) {
+            return this;
+        }
+        TreeMap<String, QuoteRow> updated = new TreeMap<>(rows);
+        updated.remove(symbol);
+        return new QuoteSnapshot(ImmutableSortedMap.copyOfSorted(updated));
+    }
+}
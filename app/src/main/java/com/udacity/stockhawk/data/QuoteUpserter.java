@@ -0,0 +1,115 @@
+package com.udacity.stockhawk.data;
+
+import android.content.ContentValues;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes quote rows in place instead of relying on the table's
+ * {@code ON CONFLICT REPLACE}, which deletes the old row and gives the new one
+ * a fresh {@code _ID}. An existing row is updated only if one of its values
+ * differs, and a row is inserted only if its symbol is not stored yet.
+ * <p>
+ * Statements are compiled once per distinct set of columns, so writing a whole
+ * batch with the same columns reuses two statements. Call {@link #close()} when
+ * the batch is done.
+ */
+final class QuoteUpserter {
+
+    private final SQLiteDatabase db;
+    private final Map<List<String>, CompiledUpsert> compiled = new HashMap<>();
+
+    QuoteUpserter(SQLiteDatabase db) {
+        this.db = db;
+    }
+
+    /**
+     * @param values quote columns; must contain {@link Contract.Quote#COLUMN_SYMBOL}.
+     * @return true if a row was inserted or an existing row's values changed.
+     */
+    boolean upsert(ContentValues values) {
+        List<String> columns = new ArrayList<>(values.keySet());
+        columns.remove(Contract.Quote.COLUMN_SYMBOL);
+        columns.remove(Contract.Quote._ID);
+        Collections.sort(columns);
+        if (columns.isEmpty()) {
+            return false;
+        }
+
+        CompiledUpsert upsert = compiled.get(columns);
+        if (upsert == null) {
+            upsert = new CompiledUpsert(db, columns);
+            compiled.put(columns, upsert);
+        }
+
+        String symbol = values.getAsString(Contract.Quote.COLUMN_SYMBOL);
+        int size = columns.size();
+
+        // UPDATE ... SET c = ? ... WHERE symbol = ? AND NOT (c IS ? AND ...)
+        SQLiteStatement update = upsert.update;
+        update.clearBindings();
+        for (int i = 0; i < size; i++) {
+            Object value = values.get(columns.get(i));
+            DatabaseUtils.bindObjectToProgram(update, i + 1, value);
+            DatabaseUtils.bindObjectToProgram(update, size + 2 + i, value);
+        }
+        update.bindString(size + 1, symbol);
+        if (update.executeUpdateDelete() > 0) {
+            return true;
+        }
+
+        // Nothing changed, or the symbol is new. An existing row makes the insert a no-op.
+        SQLiteStatement insert = upsert.insert;
+        insert.clearBindings();
+        insert.bindString(1, symbol);
+        for (int i = 0; i < size; i++) {
+            DatabaseUtils.bindObjectToProgram(insert, i + 2, values.get(columns.get(i)));
+        }
+        return insert.executeInsert() != -1;
+    }
+
+    void close() {
+        for (CompiledUpsert upsert : compiled.values()) {
+            upsert.update.close();
+            upsert.insert.close();
+        }
+        compiled.clear();
+    }
+
+    private static final class CompiledUpsert {
+        final SQLiteStatement update;
+        final SQLiteStatement insert;
+
+        CompiledUpsert(SQLiteDatabase db, List<String> columns) {
+            StringBuilder set = new StringBuilder();
+            StringBuilder unchanged = new StringBuilder();
+            StringBuilder insertColumns = new StringBuilder(Contract.Quote.COLUMN_SYMBOL);
+            StringBuilder insertValues = new StringBuilder("?");
+            for (int i = 0; i < columns.size(); i++) {
+                String column = columns.get(i);
+                if (i > 0) {
+                    set.append(", ");
+                    unchanged.append(" AND ");
+                }
+                set.append(column).append(" = ?");
+                unchanged.append(column).append(" IS ?");
+                insertColumns.append(", ").append(column);
+                insertValues.append(", ?");
+            }
+
+            update = db.compileStatement("UPDATE " + Contract.Quote.TABLE_NAME +
+                    " SET " + set +
+                    " WHERE " + Contract.Quote.COLUMN_SYMBOL + " = ?" +
+                    " AND NOT (" + unchanged + ")");
+            insert = db.compileStatement("INSERT OR IGNORE INTO " + Contract.Quote.TABLE_NAME +
+                    " (" + insertColumns + ") VALUES (" + insertValues + ")");
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.udacity.stockhawk.data;
 
 import android.content.ContentProvider;
+import android.content.ContentResolver;
 import android.content.ContentValues;
 import android.content.Context;
 import android.content.UriMatcher;
@@ -10,11 +11,24 @@ import android.net.Uri;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
 
 public class StockProvider extends ContentProvider {
 
     private static final int QUOTE = 100;
     private static final int QUOTE_FOR_SYMBOL = 101;
+    private static final int HISTORY = 200;
+    private static final int HISTORY_FOR_SYMBOL = 201;
+    private static final int HISTORY_LATEST = 202;
+    private static final int WATCHLIST = 300;
+    private static final int WATCHLIST_FOR_LIST = 301;
+    private static final int WATCHLIST_NAME = 302;
+    private static final int WATCHLIST_NAME_FOR_LIST = 303;
 
     private static final UriMatcher uriMatcher = buildUriMatcher();
 
@@ -24,6 +38,13 @@ public class StockProvider extends ContentProvider {
         UriMatcher matcher = new UriMatcher(UriMatcher.NO_MATCH);
         matcher.addURI(Contract.AUTHORITY, Contract.PATH_QUOTE, QUOTE);
         matcher.addURI(Contract.AUTHORITY, Contract.PATH_QUOTE_WITH_SYMBOL, QUOTE_FOR_SYMBOL);
+        matcher.addURI(Contract.AUTHORITY, Contract.PATH_HISTORY, HISTORY);
+        matcher.addURI(Contract.AUTHORITY, Contract.PATH_HISTORY_WITH_SYMBOL, HISTORY_FOR_SYMBOL);
+        matcher.addURI(Contract.AUTHORITY, Contract.PATH_HISTORY_LATEST, HISTORY_LATEST);
+        matcher.addURI(Contract.AUTHORITY, Contract.PATH_WATCHLIST, WATCHLIST);
+        matcher.addURI(Contract.AUTHORITY, Contract.PATH_WATCHLIST_WITH_ID, WATCHLIST_FOR_LIST);
+        matcher.addURI(Contract.AUTHORITY, Contract.PATH_WATCHLIST_NAME, WATCHLIST_NAME);
+        matcher.addURI(Contract.AUTHORITY, Contract.PATH_WATCHLIST_NAME_WITH_ID, WATCHLIST_NAME_FOR_LIST);
         return matcher;
     }
 
@@ -65,13 +86,93 @@ public class StockProvider extends ContentProvider {
                 );
 
                 break;
+
+            case HISTORY:
+                returnCursor = db.query(
+                        Contract.History.TABLE_NAME,
+                        projection,
+                        selection,
+                        selectionArgs,
+                        null,
+                        null,
+                        sortOrder
+                );
+                break;
+
+            case HISTORY_FOR_SYMBOL:
+                returnCursor = db.query(
+                        Contract.History.TABLE_NAME,
+                        projection,
+                        Contract.History.COLUMN_SYMBOL + " = ?",
+                        new String[]{Contract.History.getStockFromUri(uri)},
+                        null,
+                        null,
+                        sortOrder
+                );
+                break;
+
+            case HISTORY_LATEST:
+                returnCursor = db.query(
+                        Contract.History.TABLE_NAME,
+                        new String[]{
+                                Contract.History.COLUMN_SYMBOL,
+                                Contract.History.COLUMN_INTERVAL,
+                                "MAX(" + Contract.History.COLUMN_TIMESTAMP + ") AS " + Contract.History.COLUMN_TIMESTAMP
+                        },
+                        selection,
+                        selectionArgs,
+                        Contract.History.COLUMN_SYMBOL + ", " + Contract.History.COLUMN_INTERVAL,
+                        null,
+                        sortOrder
+                );
+                break;
+
+            case WATCHLIST:
+                returnCursor = db.query(
+                        Contract.Watchlist.TABLE_NAME,
+                        projection,
+                        selection,
+                        selectionArgs,
+                        null,
+                        null,
+                        sortOrder != null ? sortOrder
+                                : Contract.Watchlist.COLUMN_LIST_ID + ", " + Contract.Watchlist.COLUMN_POSITION
+                );
+                break;
+
+            case WATCHLIST_FOR_LIST:
+                returnCursor = db.query(
+                        Contract.Watchlist.TABLE_NAME,
+                        projection,
+                        Contract.Watchlist.COLUMN_LIST_ID + " = ?",
+                        new String[]{String.valueOf(Contract.Watchlist.getListIdFromUri(uri))},
+                        null,
+                        null,
+                        sortOrder != null ? sortOrder : Contract.Watchlist.COLUMN_POSITION
+                );
+                break;
+
+            case WATCHLIST_NAME:
+                returnCursor = db.query(
+                        Contract.WatchlistName.TABLE_NAME,
+                        projection,
+                        selection,
+                        selectionArgs,
+                        null,
+                        null,
+                        sortOrder != null ? sortOrder : Contract.WatchlistName._ID
+                );
+                break;
             default:
                 throw new UnsupportedOperationException("Unknown URI:" + uri);
         }
 
         Context context = getContext();
         if (context != null){
-            returnCursor.setNotificationUri(context.getContentResolver(), uri);
+            // Whole-list cursors watch the aggregate URI, so a change to one symbol
+            // reloads them once without also reloading cursors on other symbols.
+            Uri notificationUri = uriMatcher.match(uri) == QUOTE ? Contract.Quote.LIST_URI : uri;
+            returnCursor.setNotificationUri(context.getContentResolver(), notificationUri);
         }
 
         return returnCursor;
@@ -89,22 +190,35 @@ public class StockProvider extends ContentProvider {
         SQLiteDatabase db = dbHelper.getWritableDatabase();
         Uri returnUri;
 
+        boolean changed;
+
         switch (uriMatcher.match(uri)) {
             case QUOTE:
-                db.insert(
-                        Contract.Quote.TABLE_NAME,
-                        null,
-                        values
-                );
+                QuoteUpserter upserter = new QuoteUpserter(db);
+                try {
+                    changed = upserter.upsert(values);
+                } finally {
+                    upserter.close();
+                }
                 returnUri = Contract.Quote.URI;
                 break;
+
+            case WATCHLIST_NAME:
+                // Inserting a name for an existing list id renames the list.
+                long listId = db.insertWithOnConflict(Contract.WatchlistName.TABLE_NAME, null, values,
+                        SQLiteDatabase.CONFLICT_REPLACE);
+                returnUri = Contract.WatchlistName.makeUriForList(listId);
+                Context context = getContext();
+                if (context != null && listId != -1) {
+                    context.getContentResolver().notifyChange(uri, null);
+                }
+                return returnUri;
             default:
                 throw new UnsupportedOperationException("Unknown URI:" + uri);
         }
 
-        Context context = getContext();
-        if (context != null){
-            context.getContentResolver().notifyChange(uri, null);
+        if (changed) {
+            notifyQuotesChanged(Collections.singletonList(values.getAsString(Contract.Quote.COLUMN_SYMBOL)));
         }
 
         return returnUri;
@@ -135,6 +249,47 @@ public class StockProvider extends ContentProvider {
                         '"' + symbol + '"' + " =" + Contract.Quote.COLUMN_SYMBOL,
                         selectionArgs
                 );
+                db.delete(
+                        Contract.History.TABLE_NAME,
+                        Contract.History.COLUMN_SYMBOL + " = ?",
+                        new String[]{symbol}
+                );
+                break;
+
+            case HISTORY:
+                rowsDeleted = db.delete(
+                        Contract.History.TABLE_NAME,
+                        selection,
+                        selectionArgs
+                );
+                break;
+
+            case WATCHLIST_FOR_LIST:
+                rowsDeleted = db.delete(
+                        Contract.Watchlist.TABLE_NAME,
+                        Contract.Watchlist.COLUMN_LIST_ID + " = ?",
+                        new String[]{String.valueOf(Contract.Watchlist.getListIdFromUri(uri))}
+                );
+                break;
+
+            case WATCHLIST_NAME_FOR_LIST:
+                String[] listArgs = {String.valueOf(Contract.WatchlistName.getListIdFromUri(uri))};
+                db.beginTransaction();
+                try {
+                    rowsDeleted = db.delete(
+                            Contract.WatchlistName.TABLE_NAME,
+                            Contract.WatchlistName._ID + " = ?",
+                            listArgs
+                    );
+                    db.delete(
+                            Contract.Watchlist.TABLE_NAME,
+                            Contract.Watchlist.COLUMN_LIST_ID + " = ?",
+                            listArgs
+                    );
+                    db.setTransactionSuccessful();
+                } finally {
+                    db.endTransaction();
+                }
                 break;
             default:
                 throw new UnsupportedOperationException("Unknown URI:" + uri);
@@ -144,6 +299,10 @@ public class StockProvider extends ContentProvider {
             Context context = getContext();
             if (context != null){
                 context.getContentResolver().notifyChange(uri, null);
+                int match = uriMatcher.match(uri);
+                if (match == QUOTE || match == QUOTE_FOR_SYMBOL) {
+                    context.getContentResolver().notifyChange(Contract.Quote.LIST_URI, null);
+                }
             }
         }
 
@@ -163,30 +322,106 @@ public class StockProvider extends ContentProvider {
         switch (uriMatcher.match(uri)) {
             case QUOTE:
                 db.beginTransaction();
-                int returnCount = 0;
+                List<String> changedSymbols = new ArrayList<>();
+                QuoteUpserter upserter = new QuoteUpserter(db);
+                try {
+                    for (ContentValues value : values) {
+                        if (upserter.upsert(value)) {
+                            changedSymbols.add(value.getAsString(Contract.Quote.COLUMN_SYMBOL));
+                        }
+                    }
+                    db.setTransactionSuccessful();
+                } finally {
+                    upserter.close();
+                    db.endTransaction();
+                }
+
+                // Idle syncs leave every row as it was; don't make observers reload for nothing.
+                if (!changedSymbols.isEmpty()) {
+                    notifyQuotesChanged(changedSymbols);
+                }
+
+                return changedSymbols.size();
+
+            case HISTORY:
+                // Bars are keyed by (symbol, interval, ts): new bars are appended and the
+                // still-open latest bar, which is fetched again on every sync, is replaced.
+                db.beginTransaction();
+                int storedCount = 0;
                 try {
                     for (ContentValues value : values) {
-                        db.insert(
-                                Contract.Quote.TABLE_NAME,
+                        // The table has no rowids; the result only tells failure (-1) apart.
+                        long result = db.insertWithOnConflict(
+                                Contract.History.TABLE_NAME,
                                 null,
-                                value
+                                value,
+                                SQLiteDatabase.CONFLICT_REPLACE
                         );
+                        if (result != -1) {
+                            storedCount++;
+                        }
                     }
                     db.setTransactionSuccessful();
                 } finally {
                     db.endTransaction();
                 }
 
-                Context context = getContext();
-                if (context != null) {
-                    context.getContentResolver().notifyChange(uri, null);
+                Context historyContext = getContext();
+                if (historyContext != null && storedCount != 0) {
+                    historyContext.getContentResolver().notifyChange(uri, null);
                 }
 
-                return returnCount;
+                return storedCount;
+
+            case WATCHLIST_FOR_LIST:
+                long listId = Contract.Watchlist.getListIdFromUri(uri);
+                int position = 0;
+                db.beginTransaction();
+                try {
+                    db.delete(Contract.Watchlist.TABLE_NAME, Contract.Watchlist.COLUMN_LIST_ID + " = ?",
+                            new String[]{String.valueOf(listId)});
+                    // A symbol given twice keeps its first position, and the rest close up behind it.
+                    Set<String> listed = new HashSet<>();
+                    for (ContentValues value : values) {
+                        if (!listed.add(value.getAsString(Contract.Watchlist.COLUMN_SYMBOL))) {
+                            continue;
+                        }
+                        ContentValues row = new ContentValues(value);
+                        row.put(Contract.Watchlist.COLUMN_LIST_ID, listId);
+                        row.put(Contract.Watchlist.COLUMN_POSITION, position++);
+                        db.insertWithOnConflict(Contract.Watchlist.TABLE_NAME, null, row,
+                                SQLiteDatabase.CONFLICT_IGNORE);
+                    }
+                    db.setTransactionSuccessful();
+                } finally {
+                    db.endTransaction();
+                }
+
+                Context watchlistContext = getContext();
+                if (watchlistContext != null) {
+                    watchlistContext.getContentResolver().notifyChange(uri, null);
+                }
+
+                return position;
             default:
                 return super.bulkInsert(uri, values);
         }
 
 
     }
+
+    /**
+     * Notifies observers of each changed symbol, then list observers once.
+     */
+    private void notifyQuotesChanged(List<String> symbols) {
+        Context context = getContext();
+        if (context == null) {
+            return;
+        }
+        ContentResolver resolver = context.getContentResolver();
+        for (String symbol : symbols) {
+            resolver.notifyChange(Contract.Quote.makeUriForStock(symbol), null);
+        }
+        resolver.notifyChange(Contract.Quote.LIST_URI, null);
+    }
 }
@@ -0,0 +1,486 @@
+package com.udacity.stockhawk.data;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.database.Cursor;
+import android.os.Handler;
+import android.os.Looper;
+import android.preference.PreferenceManager;
+import android.support.annotation.MainThread;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.ImmutableSortedSet;
+import com.udacity.stockhawk.R;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import timber.log.Timber;
+
+/**
+ * The named watchlists, held in memory as immutable ordered lists. The watchlist
+ * tables are read once per process, ideally on the writer thread through
+ * {@link #warmUp}; after that reads never touch disk or allocate. The screens
+ * pair a list with its quotes through the symbol map of the {@link QuoteCache}
+ * snapshot rather than a database join, so switching lists costs one lookup per
+ * symbol.
+ * <p>
+ * Changes replace the lists under a single lock, and each changed list or name
+ * is rewritten on a single background thread; a burst of changes to a list is
+ * written once. Listeners are called on the main thread.
+ * <p>
+ * The first load moves the watchlist of earlier versions, an unordered set in
+ * the preferences, into {@link #DEFAULT_LIST_ID} in symbol order, and names any
+ * list stored before lists had names.
+ */
+public final class WatchlistStore {
+
+    public static final long DEFAULT_LIST_ID = 1;
+
+    public interface Listener {
+        void onWatchlistChanged();
+    }
+
+    private static final Object lock = new Object();
+    private static volatile State state;
+    private static final ExecutorService writer = Executors.newSingleThreadExecutor();
+    private static final AtomicBoolean writePending = new AtomicBoolean(false);
+    private static final Set<Long> dirtyLists = Collections.newSetFromMap(new ConcurrentHashMap<Long, Boolean>());
+    private static final Set<Long> dirtyNames = Collections.newSetFromMap(new ConcurrentHashMap<Long, Boolean>());
+    private static final CopyOnWriteArrayList<Listener> listeners = new CopyOnWriteArrayList<>();
+    private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private WatchlistStore() {
+    }
+
+    /**
+     * Reads the watchlists in the background, so the first read on the main
+     * thread does not wait for the disk.
+     */
+    public static void warmUp(Context context) {
+        final Context appContext = context.getApplicationContext();
+        writer.execute(new Runnable() {
+            @Override
+            public void run() {
+                getState(appContext);
+            }
+        });
+    }
+
+    /**
+     * @return every symbol on any list.
+     */
+    public static ImmutableSet<String> getSymbols(Context context) {
+        return getState(context).symbols;
+    }
+
+    /**
+     * @return the symbols of {@code listId} in list order, empty if there is no such list.
+     */
+    public static ImmutableList<String> getSymbols(Context context, long listId) {
+        return getState(context).getList(listId);
+    }
+
+    /**
+     * @return the name of every list by id, in the order the lists were created.
+     */
+    public static ImmutableSortedMap<Long, String> getLists(Context context) {
+        return getState(context).names;
+    }
+
+    /**
+     * @return {@code listId} if there is such a list, or else the first list.
+     */
+    public static long resolveList(Context context, long listId) {
+        ImmutableSortedMap<Long, String> names = getState(context).names;
+        return names.containsKey(listId) || names.isEmpty() ? listId : names.firstKey();
+    }
+
+    /**
+     * @return whether {@code symbol} is on any list.
+     */
+    public static boolean contains(Context context, String symbol) {
+        return getSymbols(context).contains(symbol);
+    }
+
+    /**
+     * @return the number of distinct symbols across all lists.
+     */
+    public static int size(Context context) {
+        return getSymbols(context).size();
+    }
+
+    /**
+     * Adds an empty list named {@code name}.
+     *
+     * @return the id of the new list.
+     */
+    public static long createList(Context context, String name) {
+        Context appContext = context.getApplicationContext();
+        synchronized (lock) {
+            ImmutableSortedMap<Long, String> names = getState(appContext).names;
+            long listId = names.isEmpty() ? DEFAULT_LIST_ID : names.lastKey() + 1;
+            rename(appContext, Collections.singletonMap(listId, name));
+            return listId;
+        }
+    }
+
+    public static void renameList(Context context, long listId, String name) {
+        Context appContext = context.getApplicationContext();
+        synchronized (lock) {
+            if (name.equals(getState(appContext).names.get(listId))) {
+                return;
+            }
+            rename(appContext, Collections.singletonMap(listId, name));
+        }
+    }
+
+    /**
+     * Deletes {@code listId} with its symbols, unless it is the only list.
+     */
+    public static void deleteList(Context context, long listId) {
+        Context appContext = context.getApplicationContext();
+        synchronized (lock) {
+            State current = getState(appContext);
+            if (!current.names.containsKey(listId) || current.names.size() == 1) {
+                return;
+            }
+            State updated = current.with(Collections.singletonMap(listId, ImmutableList.<String>of()))
+                    .withNames(Collections.singletonMap(listId, (String) null));
+            swap(appContext, updated, Collections.singleton(listId), Collections.singleton(listId));
+        }
+    }
+
+    /**
+     * Appends {@code symbol} to {@code listId}, unless the list already holds it.
+     */
+    public static void add(Context context, long listId, String symbol) {
+        Context appContext = context.getApplicationContext();
+        synchronized (lock) {
+            ImmutableList<String> list = getState(appContext).getList(listId);
+            if (list.contains(symbol)) {
+                return;
+            }
+            replace(appContext, Collections.singletonMap(listId,
+                    ImmutableList.<String>builder().addAll(list).add(symbol).build()));
+        }
+    }
+
+    public static void remove(Context context, long listId, String symbol) {
+        Context appContext = context.getApplicationContext();
+        synchronized (lock) {
+            ImmutableList<String> list = getState(appContext).getList(listId);
+            if (!list.contains(symbol)) {
+                return;
+            }
+            List<String> updated = new ArrayList<>(list);
+            updated.remove(symbol);
+            replace(appContext, Collections.singletonMap(listId, ImmutableList.copyOf(updated)));
+        }
+    }
+
+    /**
+     * Orders {@code listId} as {@code order}. Symbols of the list missing from
+     * {@code order} keep their relative order after it; symbols not on the list
+     * are ignored.
+     */
+    public static void reorder(Context context, long listId, List<String> order) {
+        Context appContext = context.getApplicationContext();
+        synchronized (lock) {
+            ImmutableList<String> list = getState(appContext).getList(listId);
+            Set<String> updated = new LinkedHashSet<>(order);
+            updated.retainAll(list);
+            updated.addAll(list);
+            ImmutableList<String> reordered = ImmutableList.copyOf(updated);
+            if (reordered.equals(list)) {
+                return;
+            }
+            replace(appContext, Collections.singletonMap(listId, reordered));
+        }
+    }
+
+    /**
+     * Removes all of {@code removed} from every list in a single change.
+     *
+     * @return the number of distinct symbols left across all lists.
+     */
+    public static int removeAll(Context context, Collection<String> removed) {
+        Context appContext = context.getApplicationContext();
+        synchronized (lock) {
+            Map<Long, ImmutableList<String>> changed = new HashMap<>();
+            for (Map.Entry<Long, ImmutableList<String>> entry : getState(appContext).lists.entrySet()) {
+                List<String> updated = new ArrayList<>(entry.getValue());
+                if (updated.removeAll(removed)) {
+                    changed.put(entry.getKey(), ImmutableList.copyOf(updated));
+                }
+            }
+            if (!changed.isEmpty()) {
+                replace(appContext, changed);
+            }
+            return state.symbols.size();
+        }
+    }
+
+    @MainThread
+    public static void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    @MainThread
+    public static void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    private static State getState(Context context) {
+        State current = state;
+        return current != null ? current : load(context.getApplicationContext());
+    }
+
+    /**
+     * Swaps in {@code changed} lists, an empty one dropping its symbols. Callers hold {@link #lock}.
+     */
+    private static void replace(Context context, Map<Long, ImmutableList<String>> changed) {
+        swap(context, state.with(changed), changed.keySet(), Collections.<Long>emptySet());
+    }
+
+    /**
+     * Swaps in {@code changed} names. Callers hold {@link #lock}.
+     */
+    private static void rename(Context context, Map<Long, String> changed) {
+        swap(context, state.withNames(changed), Collections.<Long>emptySet(), changed.keySet());
+    }
+
+    private static void swap(Context context, State updated, Set<Long> changedLists, Set<Long> changedNames) {
+        state = updated;
+        dirtyLists.addAll(changedLists);
+        dirtyNames.addAll(changedNames);
+        persist(context);
+        notifyListeners(updated);
+    }
+
+    private static State load(Context context) {
+        synchronized (lock) {
+            if (state != null) {
+                return state;
+            }
+            ImmutableSortedMap<Long, ImmutableList<String>> lists = query(context);
+            ImmutableSortedMap<Long, String> names = queryNames(context);
+            state = new State(lists, names);
+
+            Map<Long, String> unnamed = new HashMap<>();
+            for (Long listId : lists.keySet()) {
+                if (!names.containsKey(listId)) {
+                    unnamed.put(listId, context.getString(R.string.default_watchlist_name));
+                }
+            }
+            if (names.isEmpty()) {
+                unnamed.put(DEFAULT_LIST_ID, context.getString(R.string.default_watchlist_name));
+            }
+            if (!unnamed.isEmpty()) {
+                rename(context, unnamed);
+            }
+
+            String stocksKey = context.getString(R.string.pref_stocks_key);
+            String initializedKey = context.getString(R.string.pref_stocks_initialized_key);
+            SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(context);
+            if (!prefs.getBoolean(initializedKey, false)) {
+                String[] defaultStocks = context.getResources().getStringArray(R.array.default_stocks);
+                replace(context, Collections.singletonMap(DEFAULT_LIST_ID, ImmutableList.copyOf(defaultStocks)));
+            } else if (prefs.contains(stocksKey)) {
+                // The set was shown sorted by symbol, so that becomes the list order.
+                Set<String> legacy = prefs.getStringSet(stocksKey, Collections.<String>emptySet());
+                replace(context, Collections.singletonMap(DEFAULT_LIST_ID,
+                        ImmutableSortedSet.copyOf(legacy).asList()));
+            }
+            return state;
+        }
+    }
+
+    private static ImmutableSortedMap<Long, ImmutableList<String>> query(Context context) {
+        Cursor cursor = context.getContentResolver().query(Contract.Watchlist.URI,
+                Contract.Watchlist.WATCHLIST_COLUMNS.toArray(new String[]{}),
+                null, null, null);
+        if (cursor == null) {
+            Timber.e("Watchlists could not be read");
+            return ImmutableSortedMap.of();
+        }
+        try {
+            Map<Long, ImmutableList.Builder<String>> lists = new TreeMap<>();
+            while (cursor.moveToNext()) {
+                long listId = cursor.getLong(Contract.Watchlist.POSITION_LIST_ID);
+                ImmutableList.Builder<String> list = lists.get(listId);
+                if (list == null) {
+                    list = ImmutableList.builder();
+                    lists.put(listId, list);
+                }
+                list.add(cursor.getString(Contract.Watchlist.POSITION_SYMBOL));
+            }
+            ImmutableSortedMap.Builder<Long, ImmutableList<String>> loaded = ImmutableSortedMap.naturalOrder();
+            for (Map.Entry<Long, ImmutableList.Builder<String>> entry : lists.entrySet()) {
+                loaded.put(entry.getKey(), entry.getValue().build());
+            }
+            return loaded.build();
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private static ImmutableSortedMap<Long, String> queryNames(Context context) {
+        Cursor cursor = context.getContentResolver().query(Contract.WatchlistName.URI,
+                Contract.WatchlistName.WATCHLIST_NAME_COLUMNS.toArray(new String[]{}),
+                null, null, null);
+        if (cursor == null) {
+            Timber.e("Watchlist names could not be read");
+            return ImmutableSortedMap.of();
+        }
+        try {
+            ImmutableSortedMap.Builder<Long, String> names = ImmutableSortedMap.naturalOrder();
+            while (cursor.moveToNext()) {
+                names.put(cursor.getLong(Contract.WatchlistName.POSITION_ID),
+                        cursor.getString(Contract.WatchlistName.POSITION_NAME));
+            }
+            return names.build();
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private static void persist(final Context context) {
+        if (!writePending.compareAndSet(false, true)) {
+            // The queued write will pick up this change too.
+            return;
+        }
+        writer.execute(new Runnable() {
+            @Override
+            public void run() {
+                writePending.set(false);
+                // Names first, so a deleted list's symbols go with its name.
+                for (Iterator<Long> iterator = dirtyNames.iterator(); iterator.hasNext(); ) {
+                    long listId = iterator.next();
+                    iterator.remove();
+                    writeName(context, listId, state.names.get(listId));
+                }
+                for (Iterator<Long> iterator = dirtyLists.iterator(); iterator.hasNext(); ) {
+                    long listId = iterator.next();
+                    iterator.remove();
+                    write(context, listId, state.getList(listId));
+                }
+                markMigrated(context);
+            }
+        });
+    }
+
+    private static void write(Context context, long listId, ImmutableList<String> symbols) {
+        ContentValues[] values = new ContentValues[symbols.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = new ContentValues();
+            values[i].put(Contract.Watchlist.COLUMN_SYMBOL, symbols.get(i));
+        }
+        context.getContentResolver().bulkInsert(Contract.Watchlist.makeUriForList(listId), values);
+    }
+
+    private static void writeName(Context context, long listId, String name) {
+        if (name == null) {
+            context.getContentResolver().delete(Contract.WatchlistName.makeUriForList(listId), null, null);
+            return;
+        }
+        ContentValues values = new ContentValues();
+        values.put(Contract.WatchlistName._ID, listId);
+        values.put(Contract.WatchlistName.COLUMN_NAME, name);
+        context.getContentResolver().insert(Contract.WatchlistName.URI, values);
+    }
+
+    /**
+     * Records that the watchlist table holds the watchlist, once the first write has reached it.
+     */
+    private static void markMigrated(Context context) {
+        String stocksKey = context.getString(R.string.pref_stocks_key);
+        String initializedKey = context.getString(R.string.pref_stocks_initialized_key);
+        SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(context);
+        if (!prefs.getBoolean(initializedKey, false) || prefs.contains(stocksKey)) {
+            prefs.edit()
+                    .putBoolean(initializedKey, true)
+                    .remove(stocksKey)
+                    .apply();
+        }
+    }
+
+    private static void notifyListeners(final State snapshot) {
+        mainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                // Skip snapshots superseded since the post.
+                if (state != snapshot) {
+                    return;
+                }
+                for (Listener listener : listeners) {
+                    listener.onWatchlistChanged();
+                }
+            }
+        });
+    }
+
+    private static final class State {
+        final ImmutableSortedMap<Long, ImmutableList<String>> lists;
+        final ImmutableSortedMap<Long, String> names;
+        final ImmutableSet<String> symbols;
+
+        State(ImmutableSortedMap<Long, ImmutableList<String>> lists, ImmutableSortedMap<Long, String> names) {
+            this.lists = lists;
+            this.names = names;
+            ImmutableSet.Builder<String> all = ImmutableSet.builder();
+            for (ImmutableList<String> list : lists.values()) {
+                all.addAll(list);
+            }
+            symbols = all.build();
+        }
+
+        ImmutableList<String> getList(long listId) {
+            ImmutableList<String> list = lists.get(listId);
+            return list != null ? list : ImmutableList.<String>of();
+        }
+
+        State with(Map<Long, ImmutableList<String>> changed) {
+            TreeMap<Long, ImmutableList<String>> updated = new TreeMap<>(lists);
+            for (Map.Entry<Long, ImmutableList<String>> entry : changed.entrySet()) {
+                if (entry.getValue().isEmpty()) {
+                    updated.remove(entry.getKey());
+                } else {
+                    updated.put(entry.getKey(), entry.getValue());
+                }
+            }
+            return new State(ImmutableSortedMap.copyOfSorted(updated), names);
+        }
+
+        /**
+         * @param changed new names by list id, a null name dropping its list.
+         */
+        State withNames(Map<Long, String> changed) {
+            TreeMap<Long, String> updated = new TreeMap<>(names);
+            for (Map.Entry<Long, String> entry : changed.entrySet()) {
+                if (entry.getValue() == null) {
+                    updated.remove(entry.getKey());
+                } else {
+                    updated.put(entry.getKey(), entry.getValue());
+                }
+            }
+            return new State(lists, ImmutableSortedMap.copyOfSorted(updated));
+        }
+    }
+}
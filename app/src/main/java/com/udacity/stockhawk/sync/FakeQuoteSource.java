@@ -0,0 +1,247 @@
+package com.udacity.stockhawk.sync;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import yahoofinance.Stock;
+import yahoofinance.histquotes.HistoricalQuote;
+import yahoofinance.histquotes.Interval;
+import yahoofinance.quotes.stock.StockQuote;
+
+/**
+ * In-process {@link QuoteSource} for load tests and benchmarks that must run
+ * without a network. It serves a universe of {@code F00000}, {@code F00001}, ...
+ * symbols and can add latency, fail requests and leave symbols out of responses.
+ * <p>
+ * Everything is derived from the seed: the same seed and the same sequence of
+ * quote requests give the same quotes, and a bar always has the same close no
+ * matter which request returns it. Symbols outside the universe behave like
+ * unknown symbols on the real service.
+ */
+public final class FakeQuoteSource implements QuoteSource {
+
+    public static final String HOST = "localhost";
+
+    private static final long DAY_MILLIS = TimeUnit.DAYS.toMillis(1);
+    private static final String SYMBOL_PREFIX = "F";
+
+    private final long seed;
+    private final int universeSize;
+    private final AtomicLong quoteRequests = new AtomicLong();
+    private final AtomicLong historyRequests = new AtomicLong();
+    private long latencyMillis = 0;
+    private long latencyMicrosPerSymbol = 0;
+    private double failureRate = 0;
+    private double dropRate = 0;
+
+    /**
+     * @param universeSize number of symbols the source knows, e.g. 10000.
+     */
+    public FakeQuoteSource(long seed, int universeSize) {
+        this.seed = seed;
+        this.universeSize = universeSize;
+    }
+
+    /**
+     * Makes every request take {@code millisPerRequest}, plus {@code microsPerSymbol}
+     * for each symbol of a quote request.
+     */
+    public FakeQuoteSource withLatency(long millisPerRequest, long microsPerSymbol) {
+        this.latencyMillis = millisPerRequest;
+        this.latencyMicrosPerSymbol = microsPerSymbol;
+        return this;
+    }
+
+    /**
+     * Makes this fraction of requests fail with an {@link IOException}.
+     */
+    public FakeQuoteSource withFailureRate(double failureRate) {
+        this.failureRate = failureRate;
+        return this;
+    }
+
+    /**
+     * Leaves this fraction of the requested symbols out of quote responses.
+     */
+    public FakeQuoteSource withDropRate(double dropRate) {
+        this.dropRate = dropRate;
+        return this;
+    }
+
+    /**
+     * @return the symbol at {@code index} of the universe.
+     */
+    public static String symbol(int index) {
+        return String.format(Locale.US, SYMBOL_PREFIX + "%05d", index);
+    }
+
+    /**
+     * @return the first {@code count} symbols of the universe.
+     */
+    public String[] symbols(int count) {
+        String[] symbols = new String[Math.min(count, universeSize)];
+        for (int i = 0; i < symbols.length; i++) {
+            symbols[i] = symbol(i);
+        }
+        return symbols;
+    }
+
+    public long getQuoteRequestCount() {
+        return quoteRequests.get();
+    }
+
+    public long getHistoryRequestCount() {
+        return historyRequests.get();
+    }
+
+    @Override
+    public Map<String, Stock> getQuotes(String[] symbols) throws IOException {
+        long request = quoteRequests.getAndIncrement();
+        sleep(TimeUnit.MILLISECONDS.toMicros(latencyMillis) + latencyMicrosPerSymbol * symbols.length);
+        if (unit(mix(seed, request, 0x51)) < failureRate) {
+            throw new IOException("Simulated quote request failure");
+        }
+
+        Map<String, Stock> quotes = new HashMap<>();
+        for (String symbol : symbols) {
+            int index = indexOf(symbol);
+            if (index >= 0 && unit(mix(seed, request, index)) < dropRate) {
+                continue;
+            }
+            quotes.put(symbol, index < 0 ? unknownStock(symbol) : stock(symbol, index, request));
+        }
+        return quotes;
+    }
+
+    @Override
+    public List<HistoricalQuote> getHistory(String symbol, Calendar from, Calendar to, Interval interval)
+            throws IOException {
+        historyRequests.incrementAndGet();
+        sleep(TimeUnit.MILLISECONDS.toMicros(latencyMillis));
+        int index = indexOf(symbol);
+        if (unit(mix(seed, index, from.getTimeInMillis() / DAY_MILLIS ^ interval.ordinal())) < failureRate) {
+            throw new IOException("Simulated history request failure");
+        }
+
+        List<HistoricalQuote> history = new ArrayList<>();
+        if (index < 0) {
+            return history;
+        }
+        Calendar date = (Calendar) from.clone();
+        date.set(Calendar.HOUR_OF_DAY, 0);
+        date.set(Calendar.MINUTE, 0);
+        date.set(Calendar.SECOND, 0);
+        date.set(Calendar.MILLISECOND, 0);
+        while (!date.after(to)) {
+            int dayOfWeek = date.get(Calendar.DAY_OF_WEEK);
+            if (interval != Interval.DAILY || (dayOfWeek != Calendar.SATURDAY && dayOfWeek != Calendar.SUNDAY)) {
+                BigDecimal close = price(mix(seed, index, date.getTimeInMillis()));
+                history.add(0, new HistoricalQuote(symbol, (Calendar) date.clone(),
+                        close, close, close, close, close, 0L));
+            }
+            advance(date, interval);
+        }
+        return history;
+    }
+
+    @Override
+    public String getQuoteHost() {
+        return HOST;
+    }
+
+    @Override
+    public String getHistoryHost() {
+        return HOST;
+    }
+
+    private Stock stock(String symbol, int index, long request) {
+        BigDecimal previousClose = price(mix(seed, index, -1));
+        BigDecimal move = BigDecimal.valueOf(mix(seed, index, request) % 500, 2);
+        BigDecimal price = previousClose.add(move).max(BigDecimal.ONE);
+
+        StockQuote quote = new StockQuote(symbol);
+        quote.setPrice(price);
+        quote.setPreviousClose(previousClose);
+        quote.setDayLow(price.min(previousClose));
+        quote.setDayHigh(price.max(previousClose));
+
+        Stock stock = new Stock(symbol);
+        stock.setName("Fake " + symbol);
+        stock.setQuote(quote);
+        return stock;
+    }
+
+    private static Stock unknownStock(String symbol) {
+        Stock stock = new Stock(symbol);
+        stock.setQuote(new StockQuote(symbol));
+        return stock;
+    }
+
+    private int indexOf(String symbol) {
+        if (symbol == null || !symbol.startsWith(SYMBOL_PREFIX)) {
+            return -1;
+        }
+        try {
+            int index = Integer.parseInt(symbol.substring(SYMBOL_PREFIX.length()));
+            return index < universeSize && symbol.equals(symbol(index)) ? index : -1;
+        } catch (NumberFormatException exception) {
+            return -1;
+        }
+    }
+
+    private static void advance(Calendar date, Interval interval) {
+        if (interval == Interval.MONTHLY) {
+            date.add(Calendar.MONTH, 1);
+        } else if (interval == Interval.WEEKLY) {
+            date.add(Calendar.DAY_OF_YEAR, 7);
+        } else {
+            date.add(Calendar.DAY_OF_YEAR, 1);
+        }
+    }
+
+    private static void sleep(long micros) throws InterruptedIOException {
+        if (micros <= 0) {
+            return;
+        }
+        try {
+            TimeUnit.MICROSECONDS.sleep(micros);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted during simulated latency");
+        }
+    }
+
+    /**
+     * @return a price between 1.00 and 1000.99 derived from {@code hash}.
+     */
+    private static BigDecimal price(long hash) {
+        return BigDecimal.valueOf(100 + Math.abs(hash % 100000), 2);
+    }
+
+    /**
+     * @return a value in [0, 1) derived from {@code hash}.
+     */
+    private static double unit(long hash) {
+        return (hash >>> 11) * 0x1.0p-53;
+    }
+
+    private static long mix(long a, long b, long c) {
+        return splitMix(splitMix(splitMix(a) ^ b) ^ c);
+    }
+
+    private static long splitMix(long value) {
+        long z = value + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
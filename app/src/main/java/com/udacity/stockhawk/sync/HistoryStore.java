@@ -0,0 +1,222 @@
+package com.udacity.stockhawk.sync;
+
+import android.content.ContentProviderOperation;
+import android.content.ContentResolver;
+import android.content.ContentValues;
+import android.content.OperationApplicationException;
+import android.database.Cursor;
+import android.os.RemoteException;
+import android.support.annotation.Nullable;
+
+import com.udacity.stockhawk.data.Contract;
+import com.udacity.stockhawk.utils.HistoryCodec;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import timber.log.Timber;
+import yahoofinance.histquotes.Interval;
+
+/**
+ * Sync-side view of the history table. It tells the sync where each stored
+ * series ends so only newer bars are requested, appends the bars that arrive,
+ * and re-encodes the most recent bars of every series for the quotes table.
+ */
+final class HistoryStore {
+
+    private final ContentResolver resolver;
+    private final TradingCalendar tradingCalendar;
+    private final Map<String, Long> latestBars = new HashMap<>();
+
+    /**
+     * @param tradingCalendar tells when the next daily bar of a series is due.
+     */
+    HistoryStore(ContentResolver resolver, TradingCalendar tradingCalendar) {
+        this.resolver = resolver;
+        this.tradingCalendar = tradingCalendar;
+    }
+
+    /**
+     * Reads the timestamp of the newest stored bar of every series.
+     *
+     * @param symbols limits the read to these symbols; null reads every series.
+     */
+    void load(@Nullable Collection<String> symbols) {
+        latestBars.clear();
+        Cursor cursor = resolver.query(Contract.History.LATEST_URI, null,
+                symbolSelection(symbols), symbolSelectionArgs(symbols), null);
+        if (cursor == null) {
+            return;
+        }
+        try {
+            int symbolColumn = cursor.getColumnIndexOrThrow(Contract.History.COLUMN_SYMBOL);
+            int intervalColumn = cursor.getColumnIndexOrThrow(Contract.History.COLUMN_INTERVAL);
+            int timestampColumn = cursor.getColumnIndexOrThrow(Contract.History.COLUMN_TIMESTAMP);
+            while (cursor.moveToNext()) {
+                latestBars.put(key(cursor.getString(symbolColumn), cursor.getString(intervalColumn)),
+                        cursor.getLong(timestampColumn));
+            }
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * A new daily bar is due once a session newer than the stored bar has closed;
+     * a new weekly or monthly bar a week or a month after the stored one. The
+     * stored bar is only completed along with the next one.
+     *
+     * @return true if the series may have a bar newer than the stored ones at
+     * {@code now}, or nothing is stored yet.
+     */
+    boolean isBarDue(String symbol, Interval interval, Calendar now) {
+        Long latest = latestBars.get(key(symbol, interval.name()));
+        if (latest == null) {
+            return true;
+        }
+        Calendar latestDate = tradingCalendar.getSessionDate(latest);
+        if (interval == Interval.DAILY) {
+            return tradingCalendar.getSessionWindowStart(now, 1).after(latestDate);
+        }
+        Calendar next = latestDate;
+        next.add(interval == Interval.WEEKLY ? Calendar.WEEK_OF_YEAR : Calendar.MONTH, 1);
+        return !now.before(next);
+    }
+
+    /**
+     * Start of the next history request for a series. The newest stored bar is
+     * requested again since it may still have been open when it was stored.
+     *
+     * @param fullWindowStart where to start when nothing is stored yet.
+     */
+    Calendar getRequestStart(String symbol, Interval interval, Calendar fullWindowStart) {
+        Long latest = latestBars.get(key(symbol, interval.name()));
+        if (latest == null) {
+            return fullWindowStart;
+        }
+        Calendar from = Calendar.getInstance();
+        from.setTimeInMillis(latest);
+        return from;
+    }
+
+    /**
+     * Stores newly fetched bars, replacing any stored bar with the same timestamp.
+     */
+    void append(List<ContentValues> bars) {
+        if (bars.isEmpty()) {
+            return;
+        }
+        resolver.bulkInsert(Contract.History.URI, bars.toArray(new ContentValues[bars.size()]));
+    }
+
+    /**
+     * Encodes the newest {@code barCount} bars of every stored series with
+     * {@link HistoryCodec}, and drops older bars from the history table.
+     *
+     * @param symbols limits the work to these symbols; null covers every series.
+     * @return encoded series keyed by {@link #key(String, String)}.
+     */
+    Map<String, byte[]> encodeRecent(int barCount, @Nullable Collection<String> symbols) {
+        Map<String, byte[]> encoded = new HashMap<>();
+        ArrayList<ContentProviderOperation> trims = new ArrayList<>();
+
+        Cursor cursor = resolver.query(Contract.History.URI,
+                Contract.History.HISTORY_COLUMNS.toArray(new String[]{}),
+                symbolSelection(symbols),
+                symbolSelectionArgs(symbols),
+                Contract.History.COLUMN_SYMBOL + ", " + Contract.History.COLUMN_INTERVAL + ", "
+                        + Contract.History.COLUMN_TIMESTAMP + " DESC");
+        if (cursor == null) {
+            return encoded;
+        }
+
+        long[] times = new long[barCount];
+        long[] closes = new long[barCount];
+        try {
+            String currentKey = null;
+            String symbol = null;
+            String interval = null;
+            int count = 0;
+            while (cursor.moveToNext()) {
+                String rowSymbol = cursor.getString(Contract.History.POSITION_SYMBOL);
+                String rowInterval = cursor.getString(Contract.History.POSITION_INTERVAL);
+                String rowKey = key(rowSymbol, rowInterval);
+                if (!rowKey.equals(currentKey)) {
+                    if (currentKey != null) {
+                        encoded.put(currentKey, encodeNewestFirst(times, closes, count));
+                    }
+                    currentKey = rowKey;
+                    symbol = rowSymbol;
+                    interval = rowInterval;
+                    count = 0;
+                }
+                if (count < barCount) {
+                    times[count] = cursor.getLong(Contract.History.POSITION_TIMESTAMP);
+                    closes[count] = cursor.getLong(Contract.History.POSITION_CLOSE);
+                    count++;
+                    if (count == barCount) {
+                        trims.add(ContentProviderOperation.newDelete(Contract.History.URI)
+                                .withSelection(Contract.History.COLUMN_SYMBOL + " = ? AND "
+                                                + Contract.History.COLUMN_INTERVAL + " = ? AND "
+                                                + Contract.History.COLUMN_TIMESTAMP + " < ?",
+                                        new String[]{symbol, interval, String.valueOf(times[count - 1])})
+                                .build());
+                    }
+                }
+            }
+            if (currentKey != null) {
+                encoded.put(currentKey, encodeNewestFirst(times, closes, count));
+            }
+        } finally {
+            cursor.close();
+        }
+
+        if (!trims.isEmpty()) {
+            try {
+                resolver.applyBatch(Contract.AUTHORITY, trims);
+            } catch (RemoteException | OperationApplicationException exception) {
+                Timber.e(exception, "Error trimming history");
+            }
+        }
+        return encoded;
+    }
+
+    @Nullable
+    private static String symbolSelection(@Nullable Collection<String> symbols) {
+        if (symbols == null) {
+            return null;
+        }
+        StringBuilder selection = new StringBuilder(Contract.History.COLUMN_SYMBOL).append(" IN (");
+        for (int i = 0; i < symbols.size(); i++) {
+            selection.append(i == 0 ? "?" : ", ?");
+        }
+        return selection.append(')').toString();
+    }
+
+    @Nullable
+    private static String[] symbolSelectionArgs(@Nullable Collection<String> symbols) {
+        return symbols == null ? null : symbols.toArray(new String[symbols.size()]);
+    }
+
+    static String key(String symbol, String interval) {
+        return symbol + ':' + interval;
+    }
+
+    static String key(String symbol, Interval interval) {
+        return key(symbol, interval.name());
+    }
+
+    private static byte[] encodeNewestFirst(long[] times, long[] closes, int count) {
+        long[] chronologicalTimes = new long[count];
+        long[] chronologicalCloses = new long[count];
+        for (int i = 0; i < count; i++) {
+            chronologicalTimes[i] = times[count - 1 - i];
+            chronologicalCloses[i] = closes[count - 1 - i];
+        }
+        return HistoryCodec.encode(chronologicalTimes, chronologicalCloses, count);
+    }
+}
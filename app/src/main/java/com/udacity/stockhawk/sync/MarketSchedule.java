@@ -0,0 +1,104 @@
+package com.udacity.stockhawk.sync;
+
+import com.google.common.collect.ImmutableMap;
+
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decides when the next quote sync should run for a watchlist: every
+ * {@link #OPEN_PERIOD} while any of its exchanges is in session, once shortly
+ * after each session closes, and not at all while every exchange is closed.
+ */
+final class MarketSchedule {
+
+    static final long OPEN_PERIOD = TimeUnit.MINUTES.toMillis(15);
+
+    /**
+     * How long after the close the closing prices are expected to be published.
+     */
+    static final long POST_CLOSE_DELAY = TimeUnit.MINUTES.toMillis(5);
+
+    private static final TradingCalendar NYSE = new TradingCalendar();
+
+    /**
+     * Yahoo symbol suffixes of the exchanges whose hours are known. Symbols
+     * without a suffix, or with an unknown one, follow the NYSE.
+     */
+    private static final Map<String, TradingCalendar> EXCHANGES;
+
+    static {
+        TradingCalendar toronto = TradingCalendar.weekdays(
+                TimeZone.getTimeZone("America/Toronto"), 9 * 60 + 30, 16 * 60);
+        TradingCalendar europe = TradingCalendar.weekdays(
+                TimeZone.getTimeZone("Europe/Berlin"), 9 * 60, 17 * 60 + 30);
+        EXCHANGES = ImmutableMap.<String, TradingCalendar>builder()
+                .put("TO", toronto)
+                .put("V", toronto)
+                .put("L", TradingCalendar.weekdays(TimeZone.getTimeZone("Europe/London"), 8 * 60, 16 * 60 + 30))
+                .put("DE", europe)
+                .put("F", europe)
+                .put("PA", TradingCalendar.weekdays(TimeZone.getTimeZone("Europe/Paris"), 9 * 60, 17 * 60 + 30))
+                .put("HK", TradingCalendar.weekdays(TimeZone.getTimeZone("Asia/Hong_Kong"), 9 * 60 + 30, 16 * 60))
+                .put("T", TradingCalendar.weekdays(TimeZone.getTimeZone("Asia/Tokyo"), 9 * 60, 15 * 60))
+                .put("AX", TradingCalendar.weekdays(TimeZone.getTimeZone("Australia/Sydney"), 10 * 60, 16 * 60))
+                .build();
+    }
+
+    private MarketSchedule() {
+    }
+
+    static TradingCalendar calendarFor(String symbol) {
+        int dot = symbol.lastIndexOf('.');
+        if (dot < 0) {
+            return NYSE;
+        }
+        TradingCalendar calendar = EXCHANGES.get(symbol.substring(dot + 1));
+        return calendar != null ? calendar : NYSE;
+    }
+
+    /**
+     * @return the distinct calendars of the exchanges {@code symbols} trade on,
+     * or the NYSE's if there are none.
+     */
+    static Set<TradingCalendar> calendarsFor(Collection<String> symbols) {
+        if (symbols.isEmpty()) {
+            return Collections.singleton(NYSE);
+        }
+        Set<TradingCalendar> calendars = new LinkedHashSet<>();
+        for (String symbol : symbols) {
+            calendars.add(calendarFor(symbol));
+        }
+        return calendars;
+    }
+
+    /**
+     * @return when the next quote sync is due, in milliseconds since the epoch.
+     */
+    static long nextSyncTime(Collection<TradingCalendar> calendars, Calendar now) {
+        long next = Long.MAX_VALUE;
+        for (TradingCalendar calendar : calendars) {
+            next = Math.min(next, nextSyncTime(calendar, now));
+        }
+        return next;
+    }
+
+    private static long nextSyncTime(TradingCalendar calendar, Calendar now) {
+        long time = now.getTimeInMillis();
+        if (calendar.isOpen(now)) {
+            // The sync after the close is the post-close one, not the next periodic one.
+            return Math.min(time + OPEN_PERIOD, calendar.getClose(now).getTimeInMillis() + POST_CLOSE_DELAY);
+        }
+        long postClose = calendar.getPreviousClose(now).getTimeInMillis() + POST_CLOSE_DELAY;
+        if (time < postClose) {
+            return postClose;
+        }
+        return calendar.getNextOpen(now).getTimeInMillis();
+    }
+}
@@ -15,6 +15,11 @@ public class QuoteIntentService extends IntentService {
     @Override
     protected void onHandleIntent(Intent intent) {
         Timber.d("Intent handled");
-        QuoteSyncJob.getQuotes(getApplicationContext());
+        try {
+            QuoteSyncJob.getQuotes(getApplicationContext(), SyncCoordinator.getSymbols(intent),
+                    SyncCoordinator.getTiers(intent));
+        } finally {
+            SyncCoordinator.onSyncFinished(getApplicationContext());
+        }
     }
 }
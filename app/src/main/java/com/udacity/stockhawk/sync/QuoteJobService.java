@@ -2,7 +2,6 @@ package com.udacity.stockhawk.sync;
 
 import android.app.job.JobParameters;
 import android.app.job.JobService;
-import android.content.Intent;
 
 import timber.log.Timber;
 
@@ -10,15 +9,40 @@ public class QuoteJobService extends JobService {
 
 
     @Override
-    public boolean onStartJob(JobParameters jobParameters) {
+    public boolean onStartJob(final JobParameters jobParameters) {
         Timber.d("Intent handled");
-        Intent nowIntent = new Intent(getApplicationContext(), QuoteIntentService.class);
-        getApplicationContext().startService(nowIntent);
+        if (jobParameters.getJobId() == QuoteSyncJob.MARKET_SAFETY_NET_ID) {
+            QuoteSyncJob.ensureMarketSyncScheduled(getApplicationContext());
+            return false;
+        }
+        final boolean marketSync = jobParameters.getJobId() == QuoteSyncJob.MARKET_SYNC_ID;
+        if (marketSync) {
+            QuoteSyncJob.setMarketSyncRunning(true);
+        }
+        // Jobs scheduled before the sync was split into tiers carry no extras.
+        int tiers = jobParameters.getExtras().getInt(QuoteSyncJob.EXTRA_TIERS, QuoteSyncJob.TIER_ALL);
+        //noinspection WrongConstant
+        QuoteSyncJob.requestSync(getApplicationContext(), null, tiers, new Runnable() {
+            @Override
+            public void run() {
+                jobFinished(jobParameters, false);
+                if (marketSync) {
+                    // Only once the job has finished: rescheduling a running job stops it.
+                    QuoteSyncJob.setMarketSyncRunning(false);
+                    QuoteSyncJob.scheduleMarketSync(getApplicationContext());
+                }
+            }
+        });
         return true;
     }
 
     @Override
     public boolean onStopJob(JobParameters jobParameters) {
+        if (jobParameters.getJobId() == QuoteSyncJob.MARKET_SYNC_ID) {
+            // Retried with backoff, so the quote sync stays armed.
+            QuoteSyncJob.setMarketSyncRunning(false);
+            return true;
+        }
         return false;
     }
 
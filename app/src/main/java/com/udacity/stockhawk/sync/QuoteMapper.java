@@ -0,0 +1,52 @@
+package com.udacity.stockhawk.sync;
+
+import com.udacity.stockhawk.data.QuoteRow;
+
+import java.math.BigDecimal;
+
+import yahoofinance.Stock;
+import yahoofinance.quotes.stock.StockQuote;
+
+/**
+ * Turns the quotes returned by the Yahoo client into the values stored for each
+ * symbol. Uses no Android classes, so it also runs in the JVM benchmarks.
+ */
+public final class QuoteMapper {
+
+    /**
+     * Stored as the day's lowest and highest price when the service has no day range.
+     */
+    public static final float NO_DAY_RANGE = -1;
+
+    private QuoteMapper() {
+    }
+
+    /**
+     * @param stock the client's result for {@code symbol}; may be null.
+     * @return the stored values, or null if the service returned no usable quote,
+     * which usually means the symbol does not exist.
+     */
+    public static QuoteRow toRow(String symbol, Stock stock) {
+        StockQuote quote = stock == null ? null : stock.getQuote();
+        if (quote == null || quote.getPrice() == null || quote.getPreviousClose() == null) {
+            return null;
+        }
+
+        float dayLowest = NO_DAY_RANGE;
+        float dayHighest = NO_DAY_RANGE;
+        BigDecimal low = quote.getDayLow();
+        BigDecimal high = quote.getDayHigh();
+        if (low != null && high != null) {
+            dayLowest = low.floatValue();
+            dayHighest = high.floatValue();
+        }
+
+        return new QuoteRow(symbol,
+                stock.getName(),
+                quote.getPrice().floatValue(),
+                quote.getChange().floatValue(),
+                quote.getChangeInPercent().floatValue(),
+                dayLowest,
+                dayHighest);
+    }
+}
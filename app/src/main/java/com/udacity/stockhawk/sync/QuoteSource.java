@@ -0,0 +1,40 @@
+package com.udacity.stockhawk.sync;
+
+import java.io.IOException;
+import java.util.Calendar;
+import java.util.List;
+import java.util.Map;
+
+import yahoofinance.Stock;
+import yahoofinance.histquotes.HistoricalQuote;
+import yahoofinance.histquotes.Interval;
+
+/**
+ * Where the sync gets quotes and price history from. Results use the Yahoo
+ * client's model classes so they go through {@link QuoteMapper} unchanged.
+ * Implementations must be safe to call from several threads at once.
+ */
+public interface QuoteSource {
+
+    /**
+     * @return the current quote of each symbol the source returned, keyed by symbol.
+     * Unknown symbols may be missing or map to a stock without a usable quote.
+     */
+    Map<String, Stock> getQuotes(String[] symbols) throws IOException;
+
+    /**
+     * @return the bars of {@code symbol} between {@code from} and {@code to}, newest first.
+     */
+    List<HistoricalQuote> getHistory(String symbol, Calendar from, Calendar to, Interval interval)
+            throws IOException;
+
+    /**
+     * @return the host serving quote requests, used to limit concurrent requests per host.
+     */
+    String getQuoteHost();
+
+    /**
+     * @return the host serving history requests, used to limit concurrent requests per host.
+     */
+    String getHistoryHost();
+}
@@ -4,6 +4,7 @@ import android.annotation.SuppressLint;
 import android.app.job.JobInfo;
 import android.app.job.JobScheduler;
 import android.content.ComponentName;
+import android.content.ContentResolver;
 import android.content.ContentValues;
 import android.content.Context;
 import android.content.Intent;
@@ -11,32 +12,38 @@ import android.content.SharedPreferences;
 import android.net.ConnectivityManager;
 import android.net.NetworkInfo;
 import android.os.Handler;
+import android.os.PersistableBundle;
 import android.preference.PreferenceManager;
 import android.support.annotation.IntDef;
+import android.support.annotation.Nullable;
+import android.text.TextUtils;
 import android.widget.Toast;
 
 import com.udacity.stockhawk.R;
 import com.udacity.stockhawk.data.Contract;
-import com.udacity.stockhawk.data.PrefUtils;
+import com.udacity.stockhawk.data.QuoteCache;
+import com.udacity.stockhawk.data.QuoteRow;
+import com.udacity.stockhawk.data.QuoteSnapshot;
+import com.udacity.stockhawk.data.WatchlistStore;
+import com.udacity.stockhawk.utils.HistoryCodec;
 
 import java.io.IOException;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
-import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
 
 import timber.log.Timber;
-import yahoofinance.Stock;
-import yahoofinance.YahooFinance;
 import yahoofinance.histquotes.HistoricalQuote;
 import yahoofinance.histquotes.Interval;
-import yahoofinance.quotes.stock.StockQuote;
 
 import static android.os.Looper.getMainLooper;
 
@@ -50,119 +57,296 @@ public final class QuoteSyncJob {
     public static final int STOCK_STATUS_UNKNOWN = 3;
     public static final int STOCK_STATUS_INVALID = 4;
     public static final int STOCK_STATUS_EMPTY = 5;
+    static final int TIER_QUOTES = 1;
+    static final int TIER_HISTORY = 2;
+    static final int TIER_ALL = TIER_QUOTES | TIER_HISTORY;
+    static final String EXTRA_TIERS = "com.udacity.stockhawk.extra.TIERS";
     private static final int ONE_OFF_ID = 2;
-    private static final int PERIOD = 3600000;
+    private static final int HISTORY_PERIOD = 21600000;
     private static final int INITIAL_BACKOFF = 10000;
-    private static final int PERIODIC_ID = 1;
-    private static boolean invalidFlag = false;
+    static final int MARKET_SYNC_ID = 1;
+    private static final int HISTORY_PERIODIC_ID = 3;
+    static final int MARKET_SAFETY_NET_ID = 4;
+    private static final int SAFETY_NET_PERIOD = 3600000;
+    private static final int HISTORY_BARS = 5;
+    // The server occasionally returns fewer daily bars than a window holds
+    // sessions; the first window asks for twice the sessions a chart shows so a
+    // single request fills it.
+    private static final int DAILY_SESSIONS = 2 * HISTORY_BARS;
+    private static final TradingCalendar TRADING_CALENDAR = new TradingCalendar();
+    private static final ShardedQuoteFetcher QUOTE_FETCHER = new ShardedQuoteFetcher();
+    private static volatile QuoteSource quoteSource = new YahooQuoteSource();
+    private static volatile boolean marketSyncRunning;
 
+    /**
+     * Fetches quotes and history and stores them.
+     *
+     * @param symbols symbols to sync, or null to sync the whole watchlist. Symbols
+     *                that are no longer in the watchlist are ignored.
+     * @param tiers   what to refresh: quotes, the history series that have a new
+     *                bar due, or both.
+     */
     @SuppressLint("BinaryOperationInTimber")
-    public static void getQuotes(Context context) {
+    static void getQuotes(Context context, @Nullable Set<String> symbols, @SyncTiers int tiers) {
 
-        Calendar from;
-        Calendar to = Calendar.getInstance();
+        QuoteSource source = quoteSource;
+        // One deadline for both tiers.
+        SyncFetcher fetcher = new SyncFetcher();
         try {
 
-            Set<String> stockPref = PrefUtils.getStocks(context);
-            Set<String> stockCopy = new HashSet<>();
-            stockCopy.addAll(stockPref);
-            String[] stockArray = stockPref.toArray(new String[stockPref.size()]);
+            Set<String> stockCopy = new HashSet<>(WatchlistStore.getSymbols(context));
+            if (symbols != null) {
+                stockCopy.retainAll(symbols);
+                if (stockCopy.isEmpty()) {
+                    return;
+                }
+            }
 
-            if (stockArray.length == 0) {
+            if (stockCopy.isEmpty()) {
                 setStockStatus(context, STOCK_STATUS_EMPTY);
                 return;
             }
 
-            Map<String, Stock> quotes = YahooFinance.get(stockArray);
-            Iterator<String> iterator = stockCopy.iterator();
+            HistoryStore historyStore = new HistoryStore(context.getContentResolver(), TRADING_CALENDAR);
+            historyStore.load(symbols);
 
-            if (quotes.isEmpty()) {
-                setStockStatus(context, STOCK_STATUS_SERVER_DOWN);
-                return;
+            int status = STOCK_STATUS_OK;
+            if ((tiers & TIER_QUOTES) != 0) {
+                status = syncQuotes(context, source, fetcher, stockCopy);
+                if (status == STOCK_STATUS_SERVER_DOWN) {
+                    setStockStatus(context, status);
+                    return;
+                }
+            }
+            if ((tiers & TIER_HISTORY) != 0) {
+                syncHistory(context, source, fetcher, stockCopy, historyStore);
             }
 
-            ArrayList<ContentValues> contentValuesArrayList = new ArrayList<>();
-
-            while (iterator.hasNext()) {
-                String symbol = iterator.next();
-                Stock stock = quotes.get(symbol);
-                StockQuote quote;
-                float change;
-                float price;
-                float dayLowest;
-                float dayHighest;
-                float percentChange;
-                String stockName;
-                try {
-                    quote = stock.getQuote();
-                    price = quote.getPrice().floatValue();
-
-                    BigDecimal temp = quote.getDayLow();
-                    if (temp == null) {
-                        dayLowest = -1;
-                        dayHighest = -1;
-                    } else {
-                        dayLowest = temp.floatValue();
-                        dayHighest = quote.getDayHigh().floatValue();
+            setStockStatus(context, status);
+            updateWidget(context);
+        } catch (Exception e) {
+            Timber.e(e, "Unknown Error");
+            setStockStatus(context, STOCK_STATUS_UNKNOWN);
+        } finally {
+            fetcher.shutdown();
+        }
+    }
+
+    /**
+     * Fast tier: batched quote requests for {@code stocks}, stored without
+     * touching their history. Invalid symbols are dropped from the watchlist in
+     * one write, and removed from {@code stocks} so the history tier skips them.
+     * Symbols whose request failed keep their stored quote.
+     *
+     * @return the status of this sync: OK, INVALID or EMPTY if invalid symbols were
+     * dropped, or SERVER_DOWN if no symbol could be fetched at all.
+     */
+    @SuppressLint("BinaryOperationInTimber")
+    @StockStatus
+    private static int syncQuotes(Context context, QuoteSource source, SyncFetcher fetcher,
+                                  Set<String> stocks) {
+        ShardedQuoteFetcher.Result result =
+                QUOTE_FETCHER.fetch(source, fetcher, stocks.toArray(new String[stocks.size()]));
+        if (result.rows.isEmpty() && result.invalid.isEmpty()) {
+            return STOCK_STATUS_SERVER_DOWN;
+        }
+
+        List<ContentValues> quoteValues = new ArrayList<>();
+        List<QuoteRow> rows = new ArrayList<>();
+        List<String> invalid = new ArrayList<>();
+        int failed = 0;
+        QuoteSnapshot stored = QuoteCache.get(context);
+        byte[] emptyHistory = HistoryCodec.encode(new long[0], new long[0], 0);
+        Iterator<String> iterator = stocks.iterator();
+        while (iterator.hasNext()) {
+            String symbol = iterator.next();
+            switch (result.getOutcome(symbol)) {
+                case OK:
+                    break;
+                case INVALID:
+                    invalid.add(symbol);
+                    iterator.remove();
+                    continue;
+                case TRANSIENT_ERROR:
+                    failed++;
+                    continue;
+            }
+
+            QuoteRow row = result.rows.get(symbol);
+            ContentValues contentValues = toContentValues(row);
+            if (stored.get(symbol) == null) {
+                // Typically a symbol that was just added: store it right away with
+                // empty charts, so it shows up in the list after a single round trip.
+                contentValues.put(Contract.Quote.COLUMN_MONTH_HISTORY, emptyHistory);
+                contentValues.put(Contract.Quote.COLUMN_WEEK_HISTORY, emptyHistory);
+                contentValues.put(Contract.Quote.COLUMN_DAY_HISTORY, emptyHistory);
+            }
+            quoteValues.add(contentValues);
+            rows.add(row);
+        }
+        if (failed > 0) {
+            Timber.e("Quotes of " + failed + " symbols could not be fetched");
+        }
+
+        if (!quoteValues.isEmpty()) {
+            context.getContentResolver().bulkInsert(Contract.Quote.URI,
+                    quoteValues.toArray(new ContentValues[quoteValues.size()]));
+            QuoteCache.publish(rows);
+        }
+
+        if (invalid.isEmpty()) {
+            return STOCK_STATUS_OK;
+        }
+        Timber.e("Incorrect stock symbols entered : " + invalid);
+        showErrorToast(context, invalid);
+        int remaining = WatchlistStore.removeAll(context, invalid);
+        return remaining == 0 ? STOCK_STATUS_EMPTY : STOCK_STATUS_INVALID;
+    }
+
+    /**
+     * Slow tier: fetches the series of {@code stocks} that have a new bar due and
+     * rewrites their charts, in batches as the bars arrive. Symbols with no quote
+     * row yet are left alone until the quote tier has stored one.
+     */
+    private static void syncHistory(Context context, QuoteSource source, SyncFetcher fetcher,
+                                    Set<String> stocks, final HistoryStore historyStore) {
+        Calendar now = Calendar.getInstance();
+        QuoteSnapshot stored = QuoteCache.get(context);
+        List<Callable<SymbolHistory>> historyTasks = new ArrayList<>();
+        for (String symbol : stocks) {
+            if (stored.get(symbol) == null) {
+                continue;
+            }
+            Callable<SymbolHistory> task = historyTask(source, historyStore, symbol, now);
+            if (task != null) {
+                historyTasks.add(task);
+            }
+        }
+        if (historyTasks.isEmpty()) {
+            Timber.d("No new bars due");
+            return;
+        }
+
+        final ContentResolver resolver = context.getContentResolver();
+        new SyncPipeline<SymbolHistory>(fetcher, source.getHistoryHost()).run(historyTasks.iterator(),
+                new SyncPipeline.Sink<SymbolHistory>() {
+                    @Override
+                    public void persist(List<SymbolHistory> batch) {
+                        persistBatch(resolver, historyStore, batch);
                     }
 
-                    change = quote.getChange().floatValue();
-                    percentChange = quote.getChangeInPercent().floatValue();
-                    stockName = stock.getName();
-                } catch (NullPointerException exception) {
-                    Timber.e(exception, "Incorrect stock symbol entered : " + symbol);
-
-                    showErrorToast(context, symbol);
-                    PrefUtils.removeStock(context, symbol);
-                    if (PrefUtils.getStocks(context).size() == 0) {
-                        setStockStatus(context, STOCK_STATUS_EMPTY);
-                    } else {
-                        setStockStatus(context, STOCK_STATUS_INVALID);
+                    @Override
+                    public void skipped(Exception exception) {
+                        // Keep whatever was stored by the previous sync for this symbol.
+                        Timber.e(exception, "Skipping history");
                     }
-                    invalidFlag = true;
-                    continue;
-                }
+                });
+    }
+
+    private static ContentValues toContentValues(QuoteRow row) {
+        ContentValues contentValues = new ContentValues();
+        contentValues.put(Contract.Quote.COLUMN_SYMBOL, row.symbol);
+        contentValues.put(Contract.Quote.COLUMN_PRICE, row.price);
+        contentValues.put(Contract.Quote.COLUMN_PERCENTAGE_CHANGE, row.percentageChange);
+        contentValues.put(Contract.Quote.COLUMN_ABSOLUTE_CHANGE, row.absoluteChange);
+        contentValues.put(Contract.Quote.COLUMN_DAY_HIGHEST, row.dayHighest);
+        contentValues.put(Contract.Quote.COLUMN_DAY_LOWEST, row.dayLowest);
+        contentValues.put(Contract.Quote.COLUMN_STOCK_NAME, row.name);
+        return contentValues;
+    }
+
+    /**
+     * Fetches the bars of one symbol that are newer than what is stored, for
+     * every interval that has a new bar due.
+     *
+     * @return null if no interval of the symbol has a new bar due.
+     */
+    @Nullable
+    private static Callable<SymbolHistory> historyTask(final QuoteSource source, HistoryStore historyStore,
+                                                       final String symbol, Calendar now) {
+        final boolean monthDue = historyStore.isBarDue(symbol, Interval.MONTHLY, now);
+        final boolean weekDue = historyStore.isBarDue(symbol, Interval.WEEKLY, now);
+        final boolean dayDue = historyStore.isBarDue(symbol, Interval.DAILY, now);
+        if (!monthDue && !weekDue && !dayDue) {
+            return null;
+        }
 
-                from = Calendar.getInstance();
-                from.add(Calendar.MONTH, -4);
-                String monthHistory = getHistory(stock, from, to, Interval.MONTHLY);
-
-
-                from = Calendar.getInstance();
-                from.add(Calendar.DAY_OF_YEAR, -35);
-                String weekHistory = getHistory(stock, from, to, Interval.WEEKLY);
-
-                from = Calendar.getInstance();
-                from.add(Calendar.DAY_OF_YEAR, -5);
-                String dayHistory = getHistory(stock, from, to, Interval.DAILY);
-
-                ContentValues contentValues = new ContentValues();
-                contentValues.put(Contract.Quote.COLUMN_SYMBOL, symbol);
-                contentValues.put(Contract.Quote.COLUMN_PRICE, price);
-                contentValues.put(Contract.Quote.COLUMN_PERCENTAGE_CHANGE, percentChange);
-                contentValues.put(Contract.Quote.COLUMN_ABSOLUTE_CHANGE, change);
-                contentValues.put(Contract.Quote.COLUMN_MONTH_HISTORY, monthHistory);
-                contentValues.put(Contract.Quote.COLUMN_DAY_HISTORY, dayHistory);
-                contentValues.put(Contract.Quote.COLUMN_WEEK_HISTORY, weekHistory);
-                contentValues.put(Contract.Quote.COLUMN_DAY_HIGHEST, dayHighest);
-                contentValues.put(Contract.Quote.COLUMN_DAY_LOWEST, dayLowest);
-                contentValues.put(Contract.Quote.COLUMN_STOCK_NAME, stockName);
-                contentValuesArrayList.add(contentValues);
+        Calendar from = Calendar.getInstance();
+        from.add(Calendar.MONTH, -4);
+        final Calendar monthFrom = historyStore.getRequestStart(symbol, Interval.MONTHLY, from);
+
+        from = Calendar.getInstance();
+        from.add(Calendar.DAY_OF_YEAR, -35);
+        final Calendar weekFrom = historyStore.getRequestStart(symbol, Interval.WEEKLY, from);
+
+        from = TRADING_CALENDAR.getSessionWindowStart(now, DAILY_SESSIONS);
+        final Calendar dayFrom = historyStore.getRequestStart(symbol, Interval.DAILY, from);
+
+        return new Callable<SymbolHistory>() {
+            @Override
+            public SymbolHistory call() throws IOException {
+                SymbolHistory symbolHistory = new SymbolHistory(symbol);
+                Calendar to = Calendar.getInstance();
+                try {
+                    if (monthDue) {
+                        symbolHistory.bars.addAll(getHistory(source, symbol, monthFrom, to, Interval.MONTHLY));
+                    }
+                    if (weekDue) {
+                        symbolHistory.bars.addAll(getHistory(source, symbol, weekFrom, to, Interval.WEEKLY));
+                    }
+                    if (dayDue) {
+                        symbolHistory.bars.addAll(getHistory(source, symbol, dayFrom, to, Interval.DAILY));
+                    }
+                } catch (IOException exception) {
+                    throw new IOException("History request for " + symbol + " failed", exception);
+                }
+                return symbolHistory;
             }
+        };
+    }
 
-            context.getContentResolver()
-                    .bulkInsert(
-                            Contract.Quote.URI,
-                            contentValuesArrayList.toArray(new ContentValues[contentValuesArrayList.size()]));
-            if (!invalidFlag) setStockStatus(context, STOCK_STATUS_OK);
-            updateWidget(context);
-        } catch (IOException exception) {
-            Timber.e(exception, "Error fetching stock quotes");
-            setStockStatus(context, STOCK_STATUS_SERVER_DOWN);
-        } catch (Exception e) {
-            Timber.e(e, "Unknown Error");
-            setStockStatus(context, STOCK_STATUS_UNKNOWN);
+    /**
+     * Stores one batch of fetched histories: appends their new bars and rewrites
+     * the chart series of their quote rows.
+     */
+    private static void persistBatch(ContentResolver resolver, HistoryStore historyStore,
+                                     List<SymbolHistory> batch) {
+        List<ContentValues> newBars = new ArrayList<>();
+        Set<String> batchSymbols = new HashSet<>();
+        for (SymbolHistory symbolHistory : batch) {
+            newBars.addAll(symbolHistory.bars);
+            batchSymbols.add(symbolHistory.symbol);
         }
+        historyStore.append(newBars);
+        Map<String, byte[]> recentHistory = historyStore.encodeRecent(HISTORY_BARS, batchSymbols);
+
+        ContentValues[] historyValues = new ContentValues[batch.size()];
+        for (int i = 0; i < batch.size(); i++) {
+            String symbol = batch.get(i).symbol;
+            ContentValues contentValues = new ContentValues();
+            contentValues.put(Contract.Quote.COLUMN_SYMBOL, symbol);
+            contentValues.put(Contract.Quote.COLUMN_MONTH_HISTORY,
+                    getEncodedHistory(recentHistory, symbol, Interval.MONTHLY));
+            contentValues.put(Contract.Quote.COLUMN_WEEK_HISTORY,
+                    getEncodedHistory(recentHistory, symbol, Interval.WEEKLY));
+            contentValues.put(Contract.Quote.COLUMN_DAY_HISTORY,
+                    getEncodedHistory(recentHistory, symbol, Interval.DAILY));
+            historyValues[i] = contentValues;
+        }
+        resolver.bulkInsert(Contract.Quote.URI, historyValues);
+    }
+
+    private static byte[] getEncodedHistory(Map<String, byte[]> recentHistory, String symbol, Interval interval) {
+        byte[] encoded = recentHistory.get(HistoryStore.key(symbol, interval));
+        return encoded != null ? encoded : HistoryCodec.encode(new long[0], new long[0], 0);
+    }
+
+    /**
+     * Replaces the source later syncs fetch from, e.g. with a {@link FakeQuoteSource}
+     * to load test the sync without a network.
+     */
+    public static void setQuoteSource(QuoteSource source) {
+        quoteSource = source;
     }
 
     public static void updateWidget(Context context) {
@@ -170,69 +354,170 @@ public final class QuoteSyncJob {
         context.sendBroadcast(dataUpdatedIntent);
     }
 
-    private static void showErrorToast(final Context context, final String symbol) {
+    private static void showErrorToast(final Context context, final List<String> symbols) {
         Handler handler = new Handler(getMainLooper());
         handler.post(new Runnable() {
             @Override
             public void run() {
-                Toast.makeText(context, String.format(context.getString(R.string.toast_stock_invalid), symbol), Toast.LENGTH_LONG).show();
+                String message = context.getResources().getQuantityString(R.plurals.toast_stocks_invalid,
+                        symbols.size(), TextUtils.join(", ", symbols));
+                Toast.makeText(context, message, Toast.LENGTH_LONG).show();
             }
         });
     }
 
-    private static String getHistory(Stock stock, Calendar from, Calendar to, Interval interval) throws IOException {
-
-        List<HistoricalQuote> history = new ArrayList<>();
-
-        //At times, query over 5-7 days history returns very less data at times.
-        //hence performing iterative queries until 5 days of data is received.
+    /**
+     * Fetches the bars of one series between {@code from} and {@code to}, in a
+     * single request.
+     *
+     * @return one history table row per bar.
+     */
+    private static List<ContentValues> getHistory(QuoteSource source, String symbol, Calendar from, Calendar to,
+                                                  Interval interval) throws IOException {
 
-        if (interval.equals(Interval.DAILY)) {
-            while (history.size() < 5) {
-                history = stock.getHistory(from, to, interval);
-                from.add(Calendar.DAY_OF_YEAR, -1);
-            }
-        } else {
-            history = stock.getHistory(from, to, interval);
-        }
+        List<HistoricalQuote> history = source.getHistory(symbol, from, to, interval);
 
-        StringBuilder historyBuilder = new StringBuilder();
+        List<ContentValues> bars = new ArrayList<>(history.size());
         for (HistoricalQuote it : history) {
-            historyBuilder.append(it.getDate().getTimeInMillis());
-            historyBuilder.append(":");
-            historyBuilder.append(it.getClose());
-            historyBuilder.append("$");
+            if (it.getDate() == null || it.getClose() == null) {
+                continue;
+            }
+            ContentValues bar = new ContentValues();
+            bar.put(Contract.History.COLUMN_SYMBOL, symbol);
+            bar.put(Contract.History.COLUMN_INTERVAL, interval.name());
+            bar.put(Contract.History.COLUMN_TIMESTAMP, it.getDate().getTimeInMillis());
+            bar.put(Contract.History.COLUMN_CLOSE, HistoryCodec.toFixedPoint(it.getClose()));
+            bars.add(bar);
         }
-        return historyBuilder.toString();
+        return bars;
     }
 
     private static void schedulePeriodic(Context context) {
         Timber.d("Scheduling a periodic task");
-        JobInfo.Builder builder = new JobInfo.Builder(PERIODIC_ID, new ComponentName(context, QuoteJobService.class));
+        PersistableBundle extras = new PersistableBundle();
+        extras.putInt(EXTRA_TIERS, TIER_HISTORY);
+        JobInfo.Builder builder = new JobInfo.Builder(HISTORY_PERIODIC_ID,
+                new ComponentName(context, QuoteJobService.class));
         builder.setRequiredNetworkType(JobInfo.NETWORK_TYPE_ANY)
-                .setPeriodic(PERIOD)
-                .setBackoffCriteria(INITIAL_BACKOFF, JobInfo.BACKOFF_POLICY_EXPONENTIAL);
+                .setPeriodic(HISTORY_PERIOD)
+                .setPersisted(true)
+                .setBackoffCriteria(INITIAL_BACKOFF, JobInfo.BACKOFF_POLICY_EXPONENTIAL)
+                .setExtras(extras);
         JobScheduler scheduler = (JobScheduler) context.getSystemService(Context.JOB_SCHEDULER_SERVICE);
         scheduler.schedule(builder.build());
+
+        // The market sync is a one-shot job that re-arms itself when it finishes;
+        // if the process dies mid-sync nothing re-arms it but this job.
+        scheduler.schedule(new JobInfo.Builder(MARKET_SAFETY_NET_ID,
+                new ComponentName(context, QuoteJobService.class))
+                .setPeriodic(SAFETY_NET_PERIOD)
+                .setPersisted(true)
+                .build());
+        scheduleMarketSync(context);
+    }
+
+    /**
+     * Arms the quote sync job for the next time {@link MarketSchedule} wants one
+     * for the watchlist's exchanges. The job re-arms itself each time it has run,
+     * so quotes are synced often while a market is open and not at all overnight.
+     * Does nothing while the job is running, since rescheduling it would stop it.
+     */
+    @SuppressLint("BinaryOperationInTimber")
+    static void scheduleMarketSync(Context context) {
+        if (marketSyncRunning) {
+            Timber.d("Quote sync running; it re-arms itself once done");
+            return;
+        }
+        Calendar now = Calendar.getInstance();
+        long next = MarketSchedule.nextSyncTime(MarketSchedule.calendarsFor(WatchlistStore.getSymbols(context)), now);
+        long delay = Math.max(0, next - now.getTimeInMillis());
+        Timber.d("Next quote sync in " + delay / 60000 + " min");
+
+        PersistableBundle extras = new PersistableBundle();
+        extras.putInt(EXTRA_TIERS, TIER_QUOTES);
+        JobInfo.Builder builder = new JobInfo.Builder(MARKET_SYNC_ID, new ComponentName(context, QuoteJobService.class));
+        builder.setRequiredNetworkType(JobInfo.NETWORK_TYPE_ANY)
+                .setMinimumLatency(delay)
+                .setPersisted(true)
+                .setBackoffCriteria(INITIAL_BACKOFF, JobInfo.BACKOFF_POLICY_EXPONENTIAL)
+                .setExtras(extras);
+        JobScheduler scheduler = (JobScheduler) context.getSystemService(Context.JOB_SCHEDULER_SERVICE);
+        scheduler.schedule(builder.build());
+    }
+
+    /**
+     * Arms the quote sync job unless it is already pending or running.
+     */
+    static void ensureMarketSyncScheduled(Context context) {
+        if (marketSyncRunning) {
+            return;
+        }
+        JobScheduler scheduler = (JobScheduler) context.getSystemService(Context.JOB_SCHEDULER_SERVICE);
+        for (JobInfo job : scheduler.getAllPendingJobs()) {
+            if (job.getId() == MARKET_SYNC_ID) {
+                return;
+            }
+        }
+        Timber.d("Quote sync was not armed");
+        scheduleMarketSync(context);
+    }
+
+    static void setMarketSyncRunning(boolean running) {
+        marketSyncRunning = running;
     }
 
 
     synchronized public static void initialize(final Context context) {
         schedulePeriodic(context);
-        syncImmediately(context);
+        syncImmediately(context, null, TIER_ALL);
     }
 
+    /**
+     * Refreshes the quotes of the whole watchlist, e.g. on pull-to-refresh. History
+     * is left to its own periodic job, since it only changes once per bar.
+     */
     synchronized public static void syncImmediately(Context context) {
+        syncImmediately(context, null, TIER_QUOTES);
+    }
+
+    /**
+     * Syncs the quote and history of {@code symbol}, e.g. right after it was added to the watchlist.
+     */
+    public static void syncSymbol(Context context, String symbol) {
+        syncImmediately(context, Collections.singleton(symbol), TIER_ALL);
+        // The symbol may trade on an exchange whose session starts sooner.
+        scheduleMarketSync(context);
+    }
+
+    /**
+     * Asks for a sync. Requests made while a sync is running are merged into a
+     * single follow-up sync instead of each starting their own.
+     *
+     * @param symbols    symbols to sync, or null for the whole watchlist.
+     * @param tiers      what to refresh for those symbols.
+     * @param onComplete run once a sync covering this request has finished; may be null.
+     */
+    static void requestSync(Context context, @Nullable Collection<String> symbols, @SyncTiers int tiers,
+                            @Nullable Runnable onComplete) {
+        SyncCoordinator.request(context, symbols, tiers, onComplete);
+    }
+
+    synchronized private static void syncImmediately(Context context, @Nullable Collection<String> symbols,
+                                                     @SyncTiers int tiers) {
 
         ConnectivityManager cm =
                 (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
         NetworkInfo networkInfo = cm.getActiveNetworkInfo();
         if (networkInfo != null && networkInfo.isConnectedOrConnecting()) {
-            Intent nowIntent = new Intent(context, QuoteIntentService.class);
-            context.startService(nowIntent);
+            requestSync(context, symbols, tiers, null);
         } else {
+            // Runs once the network is back and catches up on everything, so
+            // deferred requests of either tier can share the one job.
+            PersistableBundle extras = new PersistableBundle();
+            extras.putInt(EXTRA_TIERS, TIER_ALL);
             JobInfo.Builder builder = new JobInfo.Builder(ONE_OFF_ID, new ComponentName(context, QuoteJobService.class));
             builder.setRequiredNetworkType(JobInfo.NETWORK_TYPE_ANY)
+                    .setExtras(extras)
                     .setBackoffCriteria(INITIAL_BACKOFF, JobInfo.BACKOFF_POLICY_EXPONENTIAL);
             JobScheduler scheduler = (JobScheduler) context.getSystemService(Context.JOB_SCHEDULER_SERVICE);
             scheduler.schedule(builder.build());
@@ -245,15 +530,31 @@ public final class QuoteSyncJob {
      * @param c              Context to get the PreferenceManager from.
      * @param setStockStatus The IntDef value to set
      */
-    @SuppressLint("CommitPrefEdits")
     static private void setStockStatus(Context c, @StockStatus int setStockStatus) {
         SharedPreferences sp = PreferenceManager.getDefaultSharedPreferences(c);
         SharedPreferences.Editor spe = sp.edit();
         spe.putInt(c.getString(R.string.pref_stock_status_key), setStockStatus);
-        spe.commit();
+        spe.apply();
     }
 
 
+    /**
+     * Bars fetched for one symbol.
+     */
+    private static final class SymbolHistory {
+        final String symbol;
+        final List<ContentValues> bars = new ArrayList<>();
+
+        SymbolHistory(String symbol) {
+            this.symbol = symbol;
+        }
+    }
+
+    @Retention(RetentionPolicy.SOURCE)
+    @IntDef(flag = true, value = {TIER_QUOTES, TIER_HISTORY})
+    @interface SyncTiers {
+    }
+
     @Retention(RetentionPolicy.SOURCE)
     @IntDef({STOCK_STATUS_OK, STOCK_STATUS_SERVER_DOWN, STOCK_STATUS_SERVER_INVALID, STOCK_STATUS_INVALID, STOCK_STATUS_UNKNOWN, STOCK_STATUS_EMPTY})
     public @interface StockStatus {
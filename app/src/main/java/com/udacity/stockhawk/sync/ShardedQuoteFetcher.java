@@ -0,0 +1,209 @@
+package com.udacity.stockhawk.sync;
+
+import com.udacity.stockhawk.data.QuoteRow;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import yahoofinance.Stock;
+
+/**
+ * Fetches the quotes of a watchlist in shards that run concurrently through a
+ * {@link SyncFetcher}, so a large watchlist neither builds one oversized
+ * request nor fails as a whole when one request does.
+ * <p>
+ * The shard size adapts across syncs: it grows by {@link #SHARD_STEP} after each
+ * shard answered within {@link #TARGET_LATENCY_MILLIS}, and halves after a slow
+ * or failed one. A failed shard is split at the new size and retried on its own,
+ * up to {@link #MAX_ATTEMPTS} times.
+ * <p>
+ * Symbols the source answered for without a usable quote are remembered for
+ * {@link #UNKNOWN_SYMBOL_TTL}, and reported as invalid without a request until then.
+ */
+final class ShardedQuoteFetcher {
+
+    static final int MIN_SHARD_SIZE = 10;
+    static final int MAX_SHARD_SIZE = 200;
+    static final int INITIAL_SHARD_SIZE = 50;
+    static final int SHARD_STEP = 10;
+    static final long TARGET_LATENCY_MILLIS = 2000;
+    static final int MAX_ATTEMPTS = 3;
+    static final long UNKNOWN_SYMBOL_TTL = TimeUnit.HOURS.toMillis(1);
+
+    private final AtomicInteger shardSize = new AtomicInteger(INITIAL_SHARD_SIZE);
+    private final Map<String, Long> unknownSymbols = new ConcurrentHashMap<>();
+
+    enum Outcome {
+        /**
+         * The source returned a usable quote.
+         */
+        OK,
+        /**
+         * The source has no quote for the symbol, which most likely does not exist.
+         */
+        INVALID,
+        /**
+         * The request failed, timed out or left the symbol out; a later sync may succeed.
+         */
+        TRANSIENT_ERROR
+    }
+
+    /**
+     * The outcome of a fetch for each requested symbol.
+     */
+    static final class Result {
+        final Map<String, QuoteRow> rows;
+        final Set<String> invalid;
+
+        Result(Map<String, QuoteRow> rows, Set<String> invalid) {
+            this.rows = rows;
+            this.invalid = invalid;
+        }
+
+        Outcome getOutcome(String symbol) {
+            if (rows.containsKey(symbol)) {
+                return Outcome.OK;
+            }
+            return invalid.contains(symbol) ? Outcome.INVALID : Outcome.TRANSIENT_ERROR;
+        }
+    }
+
+    int getShardSize() {
+        return shardSize.get();
+    }
+
+    Result fetch(QuoteSource source, SyncFetcher fetcher, String[] symbols) {
+        String host = source.getQuoteHost();
+        BlockingQueue<Future<Map<String, Stock>>> completed = new LinkedBlockingQueue<>();
+        Map<Future<Map<String, Stock>>, Shard> inFlight = new HashMap<>();
+        Map<String, QuoteRow> rows = new HashMap<>();
+        Set<String> invalid = new HashSet<>();
+
+        long now = System.currentTimeMillis();
+        List<String> requested = new ArrayList<>(symbols.length);
+        for (String symbol : symbols) {
+            Long expires = unknownSymbols.get(symbol);
+            if (expires == null) {
+                requested.add(symbol);
+            } else if (expires > now) {
+                invalid.add(symbol);
+            } else {
+                unknownSymbols.remove(symbol);
+                requested.add(symbol);
+            }
+        }
+        for (Shard shard : split(requested, 1)) {
+            inFlight.put(fetcher.submit(host, request(source, shard), completed), shard);
+        }
+
+        try {
+            while (!inFlight.isEmpty()) {
+                Future<Map<String, Stock>> done = completed.poll(fetcher.remainingNanos(), TimeUnit.NANOSECONDS);
+                if (done == null) {
+                    break;
+                }
+                Shard shard = inFlight.remove(done);
+                Map<String, Stock> quotes;
+                try {
+                    quotes = fetcher.await(done);
+                } catch (IOException | TimeoutException | RuntimeException exception) {
+                    // A runtime failure, including a cancelled request, is as transient as an I/O one.
+                    if (shard.attempt < MAX_ATTEMPTS) {
+                        for (Shard retry : split(shard.symbols, shard.attempt + 1)) {
+                            inFlight.put(fetcher.submit(host, request(source, retry), completed), retry);
+                        }
+                    }
+                    continue;
+                }
+                for (String symbol : shard.symbols) {
+                    Stock stock = quotes.get(symbol);
+                    if (stock == null) {
+                        continue;
+                    }
+                    QuoteRow row = QuoteMapper.toRow(symbol, stock);
+                    if (row != null) {
+                        rows.put(symbol, row);
+                    } else {
+                        invalid.add(symbol);
+                        unknownSymbols.put(symbol, System.currentTimeMillis() + UNKNOWN_SYMBOL_TTL);
+                    }
+                }
+            }
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        } finally {
+            for (Future<Map<String, Stock>> future : inFlight.keySet()) {
+                future.cancel(true);
+            }
+        }
+        return new Result(rows, invalid);
+    }
+
+    private Callable<Map<String, Stock>> request(final QuoteSource source, final Shard shard) {
+        return new Callable<Map<String, Stock>>() {
+            @Override
+            public Map<String, Stock> call() throws IOException {
+                long start = System.nanoTime();
+                Map<String, Stock> quotes;
+                try {
+                    quotes = source.getQuotes(shard.symbols.toArray(new String[shard.symbols.size()]));
+                } catch (IOException | RuntimeException exception) {
+                    shrink();
+                    throw exception;
+                }
+                if (TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) > TARGET_LATENCY_MILLIS) {
+                    shrink();
+                } else {
+                    grow();
+                }
+                return quotes;
+            }
+        };
+    }
+
+    private List<Shard> split(List<String> symbols, int attempt) {
+        int size = shardSize.get();
+        List<Shard> shards = new ArrayList<>();
+        for (int start = 0; start < symbols.size(); start += size) {
+            shards.add(new Shard(symbols.subList(start, Math.min(symbols.size(), start + size)), attempt));
+        }
+        return shards;
+    }
+
+    private void grow() {
+        int size;
+        do {
+            size = shardSize.get();
+        } while (!shardSize.compareAndSet(size, Math.min(MAX_SHARD_SIZE, size + SHARD_STEP)));
+    }
+
+    private void shrink() {
+        int size;
+        do {
+            size = shardSize.get();
+        } while (!shardSize.compareAndSet(size, Math.max(MIN_SHARD_SIZE, size / 2)));
+    }
+
+    private static final class Shard {
+        final List<String> symbols;
+        final int attempt;
+
+        Shard(List<String> symbols, int attempt) {
+            this.symbols = symbols;
+            this.attempt = attempt;
+        }
+    }
+}
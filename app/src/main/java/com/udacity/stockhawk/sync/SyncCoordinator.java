@@ -0,0 +1,129 @@
+package com.udacity.stockhawk.sync;
+
+import android.content.Context;
+import android.content.Intent;
+import android.support.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import timber.log.Timber;
+
+/**
+ * Collapses overlapping sync requests. At most one sync runs at a time and at
+ * most one more is queued behind it; every request made while a sync is running
+ * is merged into the queued one. A sync covers either the whole watchlist or
+ * only the symbols that were asked for, and every tier any merged request asked for.
+ */
+final class SyncCoordinator {
+
+    static final String EXTRA_SYMBOLS = "com.udacity.stockhawk.extra.SYMBOLS";
+
+    private static boolean inFlight = false;
+    private static boolean pendingFull = false;
+    private static int pendingTiers = 0;
+    private static final Set<String> pendingSymbols = new HashSet<>();
+    private static List<Runnable> inFlightCallbacks = new ArrayList<>();
+    private static List<Runnable> pendingCallbacks = new ArrayList<>();
+
+    private SyncCoordinator() {
+    }
+
+    /**
+     * @param symbols    symbols to sync, or null for the whole watchlist.
+     * @param tiers      what to refresh for those symbols.
+     * @param onComplete run on the sync thread once a sync covering this request finishes; may be null.
+     */
+    static synchronized void request(Context context, @Nullable Collection<String> symbols,
+                                     @QuoteSyncJob.SyncTiers int tiers, @Nullable Runnable onComplete) {
+        if (!inFlight) {
+            inFlight = true;
+            if (onComplete != null) {
+                inFlightCallbacks.add(onComplete);
+            }
+            start(context, symbols, tiers);
+            return;
+        }
+
+        pendingTiers |= tiers;
+        if (symbols == null) {
+            pendingFull = true;
+            pendingSymbols.clear();
+        } else if (!pendingFull) {
+            pendingSymbols.addAll(symbols);
+        }
+        if (onComplete != null) {
+            pendingCallbacks.add(onComplete);
+        }
+        Timber.d("Sync already running, request merged into the queued one");
+    }
+
+    /**
+     * Called by {@link QuoteIntentService} after every sync, whether it succeeded or not.
+     * Starts the queued sync, if any.
+     */
+    static void onSyncFinished(Context context) {
+        List<Runnable> finished;
+        synchronized (SyncCoordinator.class) {
+            finished = inFlightCallbacks;
+            inFlightCallbacks = pendingCallbacks;
+            pendingCallbacks = new ArrayList<>();
+
+            int tiers = pendingTiers;
+            pendingTiers = 0;
+            if (pendingFull) {
+                pendingFull = false;
+                start(context, null, tiers);
+            } else if (!pendingSymbols.isEmpty()) {
+                Set<String> symbols = new HashSet<>(pendingSymbols);
+                pendingSymbols.clear();
+                start(context, symbols, tiers);
+            } else {
+                inFlight = false;
+            }
+        }
+
+        for (Runnable callback : finished) {
+            callback.run();
+        }
+    }
+
+    /**
+     * @return the symbols a sync intent is limited to, or null for the whole watchlist.
+     */
+    @Nullable
+    static Set<String> getSymbols(Intent intent) {
+        String[] symbols = intent == null ? null : intent.getStringArrayExtra(EXTRA_SYMBOLS);
+        if (symbols == null) {
+            return null;
+        }
+        Set<String> result = new HashSet<>();
+        for (String symbol : symbols) {
+            result.add(symbol);
+        }
+        return result;
+    }
+
+    /**
+     * @return the tiers a sync intent asked for.
+     */
+    @QuoteSyncJob.SyncTiers
+    static int getTiers(Intent intent) {
+        //noinspection WrongConstant
+        return intent == null ? QuoteSyncJob.TIER_ALL
+                : intent.getIntExtra(QuoteSyncJob.EXTRA_TIERS, QuoteSyncJob.TIER_ALL);
+    }
+
+    private static void start(Context context, @Nullable Collection<String> symbols,
+                              @QuoteSyncJob.SyncTiers int tiers) {
+        Intent nowIntent = new Intent(context, QuoteIntentService.class);
+        nowIntent.putExtra(QuoteSyncJob.EXTRA_TIERS, tiers);
+        if (symbols != null) {
+            nowIntent.putExtra(EXTRA_SYMBOLS, symbols.toArray(new String[symbols.size()]));
+        }
+        context.startService(nowIntent);
+    }
+}
@@ -0,0 +1,143 @@
+package com.udacity.stockhawk.sync;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Runs the requests of one sync on a bounded thread pool: the quote shards of
+ * the fast tier and the history requests of the slow tier. At most
+ * {@code permitsPerHost} requests are in flight against a single host.
+ * <p>
+ * Every request shares one deadline, set when the fetcher is created, so a
+ * sync can never take longer than the configured budget. The
+ * {@link #SYNC_DEADLINE} covers both tiers together: history only gets the
+ * time the quote shards left.
+ */
+final class SyncFetcher {
+
+    private static final int MAX_THREADS = 8;
+    private static final int MAX_REQUESTS_PER_HOST = 4;
+    private static final long SYNC_DEADLINE = 90000;
+
+    private final ExecutorService executor;
+    private final Map<String, Semaphore> hostPermits = new HashMap<>();
+    private final int permitsPerHost;
+    private final long deadlineNanos;
+
+    SyncFetcher() {
+        this(MAX_THREADS, MAX_REQUESTS_PER_HOST, SYNC_DEADLINE);
+    }
+
+    /**
+     * @param threads        size of the worker pool.
+     * @param permitsPerHost maximum number of concurrent requests against one host.
+     * @param timeoutMillis  budget for the whole sync, measured from now.
+     */
+    SyncFetcher(int threads, int permitsPerHost, long timeoutMillis) {
+        this.executor = Executors.newFixedThreadPool(threads);
+        this.permitsPerHost = permitsPerHost;
+        this.deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+    }
+
+    /**
+     * Queues a request against {@code host}. The request waits for a free host
+     * permit, and is abandoned without running if the deadline passes first.
+     */
+    <T> Future<T> submit(String host, Callable<T> request) {
+        return executor.submit(withHostPermit(host, request));
+    }
+
+    /**
+     * Like {@link #submit(String, Callable)}, and also queues the returned future on
+     * {@code completion} once it is done, whether it succeeded, failed or was cancelled.
+     */
+    <T> Future<T> submit(String host, Callable<T> request, final BlockingQueue<Future<T>> completion) {
+        FutureTask<T> task = new FutureTask<T>(withHostPermit(host, request)) {
+            @Override
+            protected void done() {
+                completion.offer(this);
+            }
+        };
+        executor.execute(task);
+        return task;
+    }
+
+    private <T> Callable<T> withHostPermit(String host, final Callable<T> request) {
+        final Semaphore permits = permitsFor(host);
+        return new Callable<T>() {
+            @Override
+            public T call() throws Exception {
+                if (!permits.tryAcquire(remainingNanos(), TimeUnit.NANOSECONDS)) {
+                    throw new TimeoutException("Sync deadline passed before request started");
+                }
+                try {
+                    return request.call();
+                } finally {
+                    permits.release();
+                }
+            }
+        };
+    }
+
+    /**
+     * Waits for a submitted request, never past the sync deadline.
+     *
+     * @throws IOException      if the request failed with an I/O error.
+     * @throws TimeoutException if the deadline passed before the result arrived.
+     */
+    <T> T await(Future<T> future) throws IOException, TimeoutException {
+        try {
+            return future.get(remainingNanos(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException exception) {
+            future.cancel(true);
+            throw exception;
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a sync request");
+        } catch (ExecutionException exception) {
+            Throwable cause = exception.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof TimeoutException) {
+                throw (TimeoutException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * @return time left before the deadline, or 0 once it has passed.
+     */
+    long remainingNanos() {
+        return Math.max(0, deadlineNanos - System.nanoTime());
+    }
+
+    private synchronized Semaphore permitsFor(String host) {
+        Semaphore permits = hostPermits.get(host);
+        if (permits == null) {
+            permits = new Semaphore(permitsPerHost);
+            hostPermits.put(host, permits);
+        }
+        return permits;
+    }
+}
@@ -0,0 +1,119 @@
+package com.udacity.stockhawk.sync;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Streams per-symbol sync work through a {@link SyncFetcher} and hands the
+ * results to a {@link Sink} in small batches, in the order they complete. A
+ * batch is flushed once it holds {@code batchSize} results or its first result
+ * is {@code batchMillis} old, so stored quotes fill in progressively instead of
+ * all at once at the end.
+ * <p>
+ * At most {@code maxInFlight} tasks are queued or running at a time, which bounds
+ * how many fetched histories are held in memory regardless of watchlist size.
+ */
+final class SyncPipeline<T> {
+
+    static final int DEFAULT_BATCH_SIZE = 20;
+    static final long DEFAULT_BATCH_MILLIS = 250;
+
+    interface Sink<T> {
+        /**
+         * Called on the thread running the pipeline.
+         */
+        void persist(List<T> batch);
+
+        /**
+         * Called on the thread running the pipeline for every task that failed or
+         * did not finish before the deadline.
+         */
+        void skipped(Exception exception);
+    }
+
+    private final SyncFetcher fetcher;
+    private final String host;
+    private final int batchSize;
+    private final long batchNanos;
+    private final int maxInFlight;
+
+    SyncPipeline(SyncFetcher fetcher, String host) {
+        this(fetcher, host, DEFAULT_BATCH_SIZE, DEFAULT_BATCH_MILLIS, 2 * DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * @param host        host the tasks send their requests to.
+     * @param batchSize   results per batch.
+     * @param batchMillis longest a result waits for its batch to fill.
+     * @param maxInFlight tasks submitted but not yet handed to the sink.
+     */
+    SyncPipeline(SyncFetcher fetcher, String host, int batchSize, long batchMillis, int maxInFlight) {
+        this.fetcher = fetcher;
+        this.host = host;
+        this.batchSize = batchSize;
+        this.batchNanos = TimeUnit.MILLISECONDS.toNanos(batchMillis);
+        this.maxInFlight = maxInFlight;
+    }
+
+    /**
+     * Runs every task and returns once each one has been persisted or skipped,
+     * or the fetcher's deadline has passed.
+     */
+    void run(Iterator<Callable<T>> tasks, Sink<T> sink) {
+        BlockingQueue<Future<T>> completed = new ArrayBlockingQueue<>(maxInFlight);
+        List<Future<T>> inFlight = new ArrayList<>(maxInFlight);
+        List<T> batch = new ArrayList<>(batchSize);
+        long batchStart = 0;
+
+        try {
+            while (tasks.hasNext() || !inFlight.isEmpty()) {
+                while (tasks.hasNext() && inFlight.size() < maxInFlight) {
+                    inFlight.add(fetcher.submit(host, tasks.next(), completed));
+                }
+
+                long waitNanos = fetcher.remainingNanos();
+                if (!batch.isEmpty()) {
+                    waitNanos = Math.min(waitNanos, batchStart + batchNanos - System.nanoTime());
+                }
+                Future<T> done = completed.poll(Math.max(0, waitNanos), TimeUnit.NANOSECONDS);
+
+                if (done != null) {
+                    inFlight.remove(done);
+                    try {
+                        T result = fetcher.await(done);
+                        if (batch.isEmpty()) {
+                            batchStart = System.nanoTime();
+                        }
+                        batch.add(result);
+                    } catch (Exception exception) {
+                        sink.skipped(exception);
+                    }
+                } else if (fetcher.remainingNanos() == 0) {
+                    break;
+                }
+
+                if (batch.size() >= batchSize
+                        || (!batch.isEmpty() && System.nanoTime() - batchStart >= batchNanos)) {
+                    sink.persist(batch);
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        } finally {
+            for (Future<T> future : inFlight) {
+                future.cancel(true);
+            }
+        }
+
+        if (!batch.isEmpty()) {
+            sink.persist(batch);
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package com.udacity.stockhawk.sync;
+
+import java.util.Calendar;
+import java.util.TimeZone;
+
+/**
+ * Knows when an exchange is open for trading: its regular session hours, on
+ * weekdays that are not one of its full-day holidays. The default instance
+ * follows the NYSE hours and holiday rules.
+ */
+public final class TradingCalendar {
+
+    public static final TimeZone NEW_YORK = TimeZone.getTimeZone("America/New_York");
+
+    private static final int FIRST_JUNETEENTH_YEAR = 2022;
+    private static final int NYSE_OPEN = 9 * 60 + 30;
+    private static final int NYSE_CLOSE = 16 * 60;
+
+    private final TimeZone timeZone;
+    private final int openMinute;
+    private final int closeMinute;
+    private final boolean nyseHolidays;
+
+    public TradingCalendar() {
+        this(NEW_YORK);
+    }
+
+    /**
+     * @param timeZone zone in which the exchange's trading days begin and end.
+     */
+    public TradingCalendar(TimeZone timeZone) {
+        this(timeZone, NYSE_OPEN, NYSE_CLOSE, true);
+    }
+
+    private TradingCalendar(TimeZone timeZone, int openMinute, int closeMinute, boolean nyseHolidays) {
+        this.timeZone = timeZone;
+        this.openMinute = openMinute;
+        this.closeMinute = closeMinute;
+        this.nyseHolidays = nyseHolidays;
+    }
+
+    /**
+     * Calendar for an exchange whose holidays are not known: every weekday is
+     * treated as a trading day.
+     *
+     * @param openMinute  start of the regular session, in minutes after local midnight.
+     * @param closeMinute end of the regular session, in minutes after local midnight.
+     */
+    public static TradingCalendar weekdays(TimeZone timeZone, int openMinute, int closeMinute) {
+        return new TradingCalendar(timeZone, openMinute, closeMinute, false);
+    }
+
+    public TimeZone getTimeZone() {
+        return timeZone;
+    }
+
+    /**
+     * @param time any instant, in any zone.
+     * @return true if the exchange holds a session on the day containing {@code time}.
+     */
+    public boolean isTradingDay(Calendar time) {
+        return isLocalTradingDay(toLocal(time));
+    }
+
+    /**
+     * @return true if a regular session is in progress at {@code time}.
+     */
+    public boolean isOpen(Calendar time) {
+        Calendar local = toLocal(time);
+        int minute = local.get(Calendar.HOUR_OF_DAY) * 60 + local.get(Calendar.MINUTE);
+        return minute >= openMinute && minute < closeMinute && isLocalTradingDay(local);
+    }
+
+    /**
+     * @return start of the first session that opens after {@code time}.
+     */
+    public Calendar getNextOpen(Calendar time) {
+        Calendar open = atMinuteOfDay(toLocal(time), openMinute);
+        while (!open.after(time) || !isLocalTradingDay(open)) {
+            open.add(Calendar.DAY_OF_YEAR, 1);
+            open = atMinuteOfDay(open, openMinute);
+        }
+        return open;
+    }
+
+    /**
+     * @return end of the last session that closed at or before {@code time}.
+     */
+    public Calendar getPreviousClose(Calendar time) {
+        Calendar close = atMinuteOfDay(toLocal(time), closeMinute);
+        while (close.after(time) || !isLocalTradingDay(close)) {
+            close.add(Calendar.DAY_OF_YEAR, -1);
+            close = atMinuteOfDay(close, closeMinute);
+        }
+        return close;
+    }
+
+    /**
+     * @return end of the session held on the day containing {@code time}, whether
+     * or not the exchange trades that day.
+     */
+    public Calendar getClose(Calendar time) {
+        return atMinuteOfDay(toLocal(time), closeMinute);
+    }
+
+    /**
+     * Bars carry the date of their session as midnight in the device's zone,
+     * which is not the exchange's date everywhere.
+     *
+     * @param barTime timestamp of a stored bar.
+     * @return start of the bar's session date in this calendar's zone.
+     */
+    public Calendar getSessionDate(long barTime) {
+        Calendar device = Calendar.getInstance();
+        device.setTimeInMillis(barTime);
+        Calendar date = Calendar.getInstance(timeZone);
+        date.clear();
+        date.set(device.get(Calendar.YEAR), device.get(Calendar.MONTH), device.get(Calendar.DAY_OF_MONTH));
+        return date;
+    }
+
+    /**
+     * Computes the smallest window that holds {@code sessions} complete trading
+     * sessions before {@code to}. The session on {@code to}'s own day, if any, is
+     * not counted, since its bar may not be published yet.
+     *
+     * @param to       end of the window.
+     * @param sessions number of complete sessions the window must contain.
+     * @return start of the earliest session in the window, in this calendar's zone.
+     */
+    public Calendar getSessionWindowStart(Calendar to, int sessions) {
+        Calendar from = Calendar.getInstance(timeZone);
+        from.setTimeInMillis(to.getTimeInMillis());
+        from.set(Calendar.HOUR_OF_DAY, 0);
+        from.set(Calendar.MINUTE, 0);
+        from.set(Calendar.SECOND, 0);
+        from.set(Calendar.MILLISECOND, 0);
+
+        int found = 0;
+        while (found < sessions) {
+            from.add(Calendar.DAY_OF_YEAR, -1);
+            if (isTradingDay(from)) {
+                found++;
+            }
+        }
+        return from;
+    }
+
+    boolean isTradingDay(int year, int month, int dayOfMonth, int dayOfWeek) {
+        return dayOfWeek != Calendar.SATURDAY
+                && dayOfWeek != Calendar.SUNDAY
+                && !(nyseHolidays && isHoliday(year, month, dayOfMonth, dayOfWeek));
+    }
+
+    private boolean isLocalTradingDay(Calendar local) {
+        return isTradingDay(local.get(Calendar.YEAR), local.get(Calendar.MONTH),
+                local.get(Calendar.DAY_OF_MONTH), local.get(Calendar.DAY_OF_WEEK));
+    }
+
+    private Calendar toLocal(Calendar time) {
+        Calendar local = Calendar.getInstance(timeZone);
+        local.setTimeInMillis(time.getTimeInMillis());
+        return local;
+    }
+
+    private static Calendar atMinuteOfDay(Calendar local, int minuteOfDay) {
+        local.set(Calendar.HOUR_OF_DAY, minuteOfDay / 60);
+        local.set(Calendar.MINUTE, minuteOfDay % 60);
+        local.set(Calendar.SECOND, 0);
+        local.set(Calendar.MILLISECOND, 0);
+        return local;
+    }
+
+    /**
+     * @param month zero based, as in {@link Calendar#MONTH}.
+     * @return true if the weekday given is a full-day exchange holiday.
+     */
+    boolean isHoliday(int year, int month, int dayOfMonth, int dayOfWeek) {
+        switch (month) {
+            case Calendar.JANUARY:
+                // New Year's Day falling on a Saturday is not observed on the Friday before.
+                return isObserved(dayOfMonth, dayOfWeek, 1)
+                        || isNthWeekday(dayOfMonth, dayOfWeek, Calendar.MONDAY, 3);
+            case Calendar.FEBRUARY:
+                return isNthWeekday(dayOfMonth, dayOfWeek, Calendar.MONDAY, 3);
+            case Calendar.MARCH:
+            case Calendar.APRIL:
+                return isGoodFriday(year, month, dayOfMonth);
+            case Calendar.MAY:
+                return dayOfWeek == Calendar.MONDAY && dayOfMonth > 31 - 7;
+            case Calendar.JUNE:
+                return year >= FIRST_JUNETEENTH_YEAR && isObserved(dayOfMonth, dayOfWeek, 19);
+            case Calendar.JULY:
+                return isObserved(dayOfMonth, dayOfWeek, 4);
+            case Calendar.SEPTEMBER:
+                return isNthWeekday(dayOfMonth, dayOfWeek, Calendar.MONDAY, 1);
+            case Calendar.NOVEMBER:
+                return isNthWeekday(dayOfMonth, dayOfWeek, Calendar.THURSDAY, 4);
+            case Calendar.DECEMBER:
+                return isObserved(dayOfMonth, dayOfWeek, 25);
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * A fixed-date holiday on a Saturday is observed the Friday before, and on a
+     * Sunday the Monday after.
+     */
+    private static boolean isObserved(int dayOfMonth, int dayOfWeek, int holiday) {
+        return dayOfMonth == holiday
+                || dayOfMonth == holiday - 1 && dayOfWeek == Calendar.FRIDAY
+                || dayOfMonth == holiday + 1 && dayOfWeek == Calendar.MONDAY;
+    }
+
+    private static boolean isNthWeekday(int dayOfMonth, int dayOfWeek, int weekday, int n) {
+        return dayOfWeek == weekday && (dayOfMonth - 1) / 7 == n - 1;
+    }
+
+    private static boolean isGoodFriday(int year, int month, int dayOfMonth) {
+        // Anonymous Gregorian algorithm for Easter Sunday.
+        int a = year % 19;
+        int b = year / 100;
+        int c = year % 100;
+        int d = b / 4;
+        int e = b % 4;
+        int f = (b + 8) / 25;
+        int g = (b - f + 1) / 3;
+        int h = (19 * a + b - d - g + 15) % 30;
+        int i = c / 4;
+        int k = c % 4;
+        int l = (32 + 2 * e + 2 * i - h - k) % 7;
+        int m = (a + 11 * h + 22 * l) / 451;
+        int easterMonth = (h + l - 7 * m + 114) / 31;
+        int easterDay = (h + l - 7 * m + 114) % 31 + 1;
+
+        int goodFridayMonth = easterMonth - 1;
+        int goodFridayDay = easterDay - 2;
+        if (goodFridayDay < 1) {
+            goodFridayMonth--;
+            goodFridayDay += 31;
+        }
+        return month == goodFridayMonth && dayOfMonth == goodFridayDay;
+    }
+}
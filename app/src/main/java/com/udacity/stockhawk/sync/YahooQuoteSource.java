@@ -0,0 +1,158 @@
+package com.udacity.stockhawk.sync;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import yahoofinance.Stock;
+import yahoofinance.Utils;
+import yahoofinance.YahooFinance;
+import yahoofinance.histquotes.HistoricalQuote;
+import yahoofinance.histquotes.Interval;
+
+/**
+ * {@link QuoteSource} backed by the Yahoo Finance service.
+ * <p>
+ * History is requested here rather than through the client's own request so
+ * each request can say how stale a response the HTTP response cache installed
+ * by the app may answer it with. A bar whose period has ended never changes:
+ * a window made only of such bars is served from the cache for as long as it
+ * is held there, and a window that may still hold an open bar for
+ * {@link #OPEN_HISTORY_MAX_STALE} seconds. Past that the cache revalidates the
+ * response with the server. Responses the server marks no-store are never held.
+ * <p>
+ * Quotes go through the client unchanged; a refresh the user asked for must
+ * not be served stale.
+ */
+final class YahooQuoteSource implements QuoteSource {
+
+    static final long CLOSED_HISTORY_MAX_STALE = TimeUnit.DAYS.toSeconds(365);
+    static final long OPEN_HISTORY_MAX_STALE = TimeUnit.MINUTES.toSeconds(15);
+
+    private static final String CACHE_CONTROL = "Cache-Control";
+
+    @Override
+    public Map<String, Stock> getQuotes(String[] symbols) throws IOException {
+        return YahooFinance.get(symbols);
+    }
+
+    @Override
+    public List<HistoricalQuote> getHistory(String symbol, Calendar from, Calendar to, Interval interval)
+            throws IOException {
+        List<HistoricalQuote> history = new ArrayList<>();
+        if (from.after(to)) {
+            return history;
+        }
+
+        URLConnection connection = new URL(historyUrl(symbol, from, to, interval)).openConnection();
+        connection.setConnectTimeout(YahooFinance.CONNECTION_TIMEOUT);
+        connection.setReadTimeout(YahooFinance.CONNECTION_TIMEOUT);
+        connection.setRequestProperty(CACHE_CONTROL, cacheControl(to, interval, System.currentTimeMillis()));
+
+        // Read to the end so the response cache commits the body.
+        BufferedReader reader = new BufferedReader(new InputStreamReader(connection.getInputStream()));
+        try {
+            reader.readLine(); // Header
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                history.add(parseBar(symbol, line));
+            }
+        } finally {
+            reader.close();
+        }
+        return history;
+    }
+
+    @Override
+    public String getQuoteHost() {
+        return hostOf(YahooFinance.QUOTES_BASE_URL);
+    }
+
+    @Override
+    public String getHistoryHost() {
+        return hostOf(YahooFinance.HISTQUOTES_BASE_URL);
+    }
+
+    /**
+     * @return the URL the client's own history request would use.
+     */
+    static String historyUrl(String symbol, Calendar from, Calendar to, Interval interval) {
+        Map<String, String> params = new LinkedHashMap<>();
+        params.put("s", symbol);
+        params.put("a", String.valueOf(from.get(Calendar.MONTH)));
+        params.put("b", String.valueOf(from.get(Calendar.DAY_OF_MONTH)));
+        params.put("c", String.valueOf(from.get(Calendar.YEAR)));
+        params.put("d", String.valueOf(to.get(Calendar.MONTH)));
+        params.put("e", String.valueOf(to.get(Calendar.DAY_OF_MONTH)));
+        params.put("f", String.valueOf(to.get(Calendar.YEAR)));
+        params.put("g", interval.getTag());
+        params.put("ignore", ".csv");
+        return YahooFinance.HISTQUOTES_BASE_URL + '?' + Utils.getURLParameters(params);
+    }
+
+    /**
+     * @return the Cache-Control request header for a history window ending on {@code to}.
+     */
+    static String cacheControl(Calendar to, Interval interval, long now) {
+        long maxStale = dayOf(to) < firstOpenDay(interval, now)
+                ? CLOSED_HISTORY_MAX_STALE
+                : OPEN_HISTORY_MAX_STALE;
+        return "max-stale=" + maxStale;
+    }
+
+    /**
+     * Parses a line of date, open, high, low, close, volume and adjusted close.
+     */
+    private static HistoricalQuote parseBar(String symbol, String line) {
+        String[] data = line.split(",");
+        return new HistoricalQuote(symbol,
+                Utils.parseHistDate(data[0]),
+                Utils.getBigDecimal(data[1]),
+                Utils.getBigDecimal(data[3]),
+                Utils.getBigDecimal(data[2]),
+                Utils.getBigDecimal(data[4]),
+                Utils.getBigDecimal(data[6]),
+                Utils.getLong(data[5]));
+    }
+
+    /**
+     * @return the first date on which a bar of {@code interval} may not have ended
+     * by {@code now} on the exchange's calendar; bars dated before it are final.
+     */
+    private static int firstOpenDay(Interval interval, long now) {
+        Calendar exchangeNow = Calendar.getInstance(TradingCalendar.NEW_YORK);
+        exchangeNow.setTimeInMillis(now);
+        if (interval == Interval.DAILY) {
+            return dayOf(exchangeNow);
+        }
+        if (interval == Interval.WEEKLY) {
+            return dayOf(exchangeNow) - 6;
+        }
+        exchangeNow.add(Calendar.MONTH, -1);
+        return dayOf(exchangeNow) + 1;
+    }
+
+    /**
+     * @return days since the epoch of the date of {@code calendar} in its own zone.
+     */
+    private static int dayOf(Calendar calendar) {
+        long time = calendar.getTimeInMillis();
+        return (int) TimeUnit.MILLISECONDS.toDays(time + calendar.getTimeZone().getOffset(time));
+    }
+
+    private static String hostOf(String url) {
+        try {
+            return new URL(url).getHost();
+        } catch (MalformedURLException exception) {
+            throw new IllegalStateException(exception);
+        }
+    }
+}
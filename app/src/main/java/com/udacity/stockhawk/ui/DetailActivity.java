@@ -2,7 +2,6 @@ package com.udacity.stockhawk.ui;
 
 import android.content.Intent;
 import android.content.res.Configuration;
-import android.database.Cursor;
 import android.net.Uri;
 import android.os.Bundle;
 import android.support.design.widget.TabLayout;
@@ -10,7 +9,6 @@ import android.support.v4.app.Fragment;
 import android.support.v4.app.FragmentManager;
 import android.support.v4.app.FragmentPagerAdapter;
 import android.support.v4.app.LoaderManager;
-import android.support.v4.content.CursorLoader;
 import android.support.v4.content.Loader;
 import android.support.v4.view.ViewPager;
 import android.support.v7.app.ActionBar;
@@ -21,10 +19,12 @@ import android.view.View;
 import android.widget.TextView;
 
 import com.udacity.stockhawk.R;
-import com.udacity.stockhawk.data.Contract;
+import com.udacity.stockhawk.data.QuoteCache;
+import com.udacity.stockhawk.data.QuoteRow;
+import com.udacity.stockhawk.data.QuoteSnapshot;
+import com.udacity.stockhawk.utils.PriceFormatter;
+import com.udacity.stockhawk.utils.StockHistory;
 
-import java.text.DecimalFormat;
-import java.text.NumberFormat;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
@@ -32,10 +32,11 @@ import java.util.Locale;
 import butterknife.BindView;
 import butterknife.ButterKnife;
 
-public class DetailActivity extends AppCompatActivity implements LoaderManager.LoaderCallbacks<Cursor> {
+public class DetailActivity extends AppCompatActivity implements QuoteCache.Listener,
+        LoaderManager.LoaderCallbacks<StockHistory> {
 
     private static final int PAGE_LIMIT = 2;
-    private static int LOADER_ID = 0;
+    private static final int HISTORY_LOADER = 0;
     public Boolean dataLoaded = false;
     @BindView(R.id.toolbar)
     public Toolbar toolbar;
@@ -52,6 +53,8 @@ public class DetailActivity extends AppCompatActivity implements LoaderManager.L
     @BindView(R.id.tabs)
     public TabLayout tabLayout;
     private Uri stockUri;
+    private StockHistory stockHistory;
+    private final List<DetailFragment> historyListeners = new ArrayList<>();
 
     ActionBar supportActionBar;
 
@@ -69,7 +72,16 @@ public class DetailActivity extends AppCompatActivity implements LoaderManager.L
 
         setupViewPager();
 
-        getSupportLoaderManager().initLoader(LOADER_ID, null, this);
+        QuoteCache.addListener(this, this);
+        if (stockUri != null) {
+            getSupportLoaderManager().initLoader(HISTORY_LOADER, null, this);
+        }
+    }
+
+    @Override
+    protected void onDestroy() {
+        QuoteCache.removeListener(this);
+        super.onDestroy();
     }
 
     @Override
@@ -115,45 +127,65 @@ public class DetailActivity extends AppCompatActivity implements LoaderManager.L
         tabLayout.setupWithViewPager(viewPager, true);
     }
 
+    /**
+     * Hands {@code fragment} its series now if the history has been loaded, and
+     * again whenever it is reloaded.
+     */
+    void addHistoryListener(DetailFragment fragment) {
+        historyListeners.add(fragment);
+        if (stockHistory != null) {
+            fragment.onHistoryLoaded(stockHistory);
+        }
+    }
+
+    void removeHistoryListener(DetailFragment fragment) {
+        historyListeners.remove(fragment);
+    }
+
     @Override
-    public Loader<Cursor> onCreateLoader(int id, Bundle args) {
-        if (stockUri != null) {
-            return new CursorLoader(
-                    this,
-                    stockUri,
-                    Contract.Quote.QUOTE_COLUMNS.toArray(new String[]{}),
-                    null,
-                    null,
-                    null
-            );
+    public Loader<StockHistory> onCreateLoader(int id, Bundle args) {
+        return new StockHistoryLoader(this, stockUri);
+    }
+
+    @Override
+    public void onLoadFinished(Loader<StockHistory> loader, StockHistory data) {
+        if (data != null) {
+            stockHistory = data;
+            for (DetailFragment fragment : historyListeners) {
+                fragment.onHistoryLoaded(data);
+            }
         }
-        return null;
+        supportStartPostponedEnterTransition();
+    }
+
+    @Override
+    public void onLoaderReset(Loader<StockHistory> loader) {
+        stockHistory = null;
     }
 
     @Override
-    public void onLoadFinished(Loader<Cursor> loader, Cursor data) {
-        if (data.moveToFirst()) {
-            String stockName = data.getString(Contract.Quote.POSITION_NAME);
-            Float stockPrice = data.getFloat(Contract.Quote.POSITION_PRICE);
-            Float absolutionChange = data.getFloat(Contract.Quote.POSITION_ABSOLUTE_CHANGE);
-            Float dayLowest = data.getFloat(Contract.Quote.POSITION_LOWEST);
-            Float dayHighest = data.getFloat(Contract.Quote.POSITION_HIGHEST);
+    public void onQuotesChanged(QuoteSnapshot snapshot) {
+        QuoteRow quote = stockUri == null ? null : snapshot.get(stockUri.getLastPathSegment());
+        if (quote != null) {
+            String stockName = quote.name;
+            Float stockPrice = quote.price;
+            Float absolutionChange = quote.absoluteChange;
+            Float dayLowest = quote.dayLowest;
+            Float dayHighest = quote.dayHighest;
 
             getWindow().getDecorView().setContentDescription(
                     String.format(getString(R.string.detail_activity_cd), stockName));
 
-            DecimalFormat dollarFormat = (DecimalFormat) NumberFormat.getCurrencyInstance(Locale.getDefault());
-            dollarFormat.setMaximumFractionDigits(2);
-            dollarFormat.setMinimumFractionDigits(2);
+            PriceFormatter priceFormatter = PriceFormatter.getInstance(Locale.getDefault());
 
             supportActionBar.setTitle(stockName);
-            tvStockPrice.setText(dollarFormat.format(stockPrice));
+            tvStockPrice.setText(priceFormatter.formatPrice(stockPrice));
             tvStockPrice.setContentDescription(String.format(getString(R.string.stock_price_cd), tvStockPrice.getText()));
-            tvAbsoluteChange.setText(dollarFormat.format(absolutionChange));
+            tvAbsoluteChange.setText(priceFormatter.formatPrice(absolutionChange));
             if (dayHighest != -1) {
-                tvDayHighest.setText(dollarFormat.format(dayHighest));
+                tvDayHighest.setText(priceFormatter.formatPrice(dayHighest));
                 tvDayHighest.setContentDescription(String.format(getString(R.string.day_highest_cd), tvDayHighest.getText()));
-                tvDayLowest.setText(dollarFormat.format(dayLowest));
+                tvDayLowest.setText(priceFormatter.formatPrice(dayLowest));
                 tvDayLowest.setContentDescription(String.format(getString(R.string.day_lowest_cd), tvDayLowest.getText()));
             } else {
                 tvDayLowest.setVisibility(View.GONE);
@@ -172,11 +204,6 @@ public class DetailActivity extends AppCompatActivity implements LoaderManager.L
     }
 
 
-    @Override
-    public void onLoaderReset(Loader<Cursor> loader) {
-        dataLoaded = false;
-    }
-
     public class ViewPagerAdapter extends FragmentPagerAdapter {
 
         private final List<Fragment> fragmentList = new ArrayList<>();
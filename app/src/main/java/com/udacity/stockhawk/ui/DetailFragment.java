@@ -1,13 +1,8 @@
 package com.udacity.stockhawk.ui;
 
-import android.database.Cursor;
-import android.net.Uri;
 import android.os.Bundle;
 import android.support.annotation.Nullable;
 import android.support.v4.app.Fragment;
-import android.support.v4.app.LoaderManager;
-import android.support.v4.content.CursorLoader;
-import android.support.v4.content.Loader;
 import android.support.v4.util.Pair;
 import android.view.LayoutInflater;
 import android.view.View;
@@ -25,25 +20,24 @@ import com.github.mikephil.charting.data.LineDataSet;
 import com.udacity.stockhawk.R;
 import com.udacity.stockhawk.data.Contract;
 import com.udacity.stockhawk.utils.CustomMarkerView;
+import com.udacity.stockhawk.utils.HistorySeries;
+import com.udacity.stockhawk.utils.StockHistory;
 import com.udacity.stockhawk.utils.XAxisFormatter;
 import com.udacity.stockhawk.utils.YAxisFormatter;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 
 import butterknife.BindColor;
 import butterknife.BindView;
 import butterknife.ButterKnife;
 
-public class DetailFragment extends Fragment implements LoaderManager.LoaderCallbacks<Cursor> {
+public class DetailFragment extends Fragment {
 
     public String fragmentDataType;
     public String dateFormat;
     public int dataColumnPosition;
-    public Uri stockUri;
-    public String historyData;
-    public int LOADER_ID;
+    public HistorySeries historyData;
     @BindView(R.id.chart)
     public LineChart linechart;
     @BindColor(R.color.white)
@@ -56,17 +50,14 @@ public class DetailFragment extends Fragment implements LoaderManager.LoaderCall
         if (savedInstanceState == null) {
             fragmentDataType = getArguments().getString(getString(R.string.FRAGMENT_DATA_TYPE_KEY));
             if (fragmentDataType.equals(getString(R.string.MONTHLY))) {
-                dataColumnPosition = Contract.Quote.POSITION_MONTH_HISTORY;
+                dataColumnPosition = Contract.Quote.POSITION_HISTORY_MONTH;
                 dateFormat = "MMM";
-                LOADER_ID = 100;
             } else if (fragmentDataType.equals(getString(R.string.WEEKLY))) {
-                dataColumnPosition = Contract.Quote.POSITION_WEEK_HISTORY;
+                dataColumnPosition = Contract.Quote.POSITION_HISTORY_WEEK;
                 dateFormat = "dd";
-                LOADER_ID = 200;
             } else {
-                dataColumnPosition = Contract.Quote.POSITION_DAY_HISTORY;
+                dataColumnPosition = Contract.Quote.POSITION_HISTORY_DAY;
                 dateFormat = "dd";
-                LOADER_ID = 300;
             }
         }
     }
@@ -85,13 +76,13 @@ public class DetailFragment extends Fragment implements LoaderManager.LoaderCall
     @Override
     public void onActivityCreated(@Nullable Bundle savedInstanceState) {
         super.onActivityCreated(savedInstanceState);
-        stockUri = getActivity().getIntent().getData();
+        ((DetailActivity) getActivity()).addHistoryListener(this);
     }
 
     @Override
-    public void onResume() {
-        super.onResume();
-        getLoaderManager().initLoader(LOADER_ID, null, this);
+    public void onDetach() {
+        ((DetailActivity) getActivity()).removeHistoryListener(this);
+        super.onDetach();
     }
 
     private Entry getLastButOneData(List<Entry> dataPairs) {
@@ -102,28 +93,22 @@ public class DetailFragment extends Fragment implements LoaderManager.LoaderCall
         }
     }
 
-    @Override
-    public Loader<Cursor> onCreateLoader(int id, Bundle args) {
-        if (stockUri != null && getContext() != null) {
-            return new CursorLoader(
-                    getContext(),
-                    stockUri,
-                    Contract.Quote.QUOTE_COLUMNS.toArray(new String[]{}),
-                    null,
-                    null,
-                    null
-            );
+    void onHistoryLoaded(StockHistory history) {
+        //every reload, e.g. after a sync stored new bars, replaces the chart data
+        historyData = selectSeries(history);
+        if (linechart != null) {
+            setUpLineChart();
         }
-        return null;
     }
 
-    @Override
-    public void onLoadFinished(Loader<Cursor> loader, Cursor data) {
-        if (historyData == null && data.moveToFirst()) {
-            //set up the chart with history data
-            historyData = data.getString(dataColumnPosition);
-            setUpLineChart();
-            getActivity().supportStartPostponedEnterTransition();
+    private HistorySeries selectSeries(StockHistory history) {
+        switch (dataColumnPosition) {
+            case Contract.Quote.POSITION_HISTORY_MONTH:
+                return history.monthly;
+            case Contract.Quote.POSITION_HISTORY_WEEK:
+                return history.weekly;
+            default:
+                return history.daily;
         }
     }
 
@@ -131,6 +116,11 @@ public class DetailFragment extends Fragment implements LoaderManager.LoaderCall
         Pair<Float, List<Entry>> result = getFormattedStockHistory(historyData);
         List<Entry> dataPairs = result.second;
         Float referenceTime = result.first;
+        if (dataPairs.isEmpty()) {
+            linechart.clear();
+            return;
+        }
+        boolean firstData = linechart.getData() == null;
         LineDataSet dataSet = new LineDataSet(dataPairs, "");
         dataSet.setColor(white);
         dataSet.setLineWidth(2f);
@@ -180,31 +170,19 @@ public class DetailFragment extends Fragment implements LoaderManager.LoaderCall
         description.setText(" ");
         linechart.setDescription(description);
         linechart.setExtraOffsets(10, 0, 0, 10);
-        linechart.animateX(1500, Easing.EasingOption.Linear);
-    }
-
-    @Override
-    public void onLoaderReset(Loader<Cursor> loader) {
-        //No action needed
+        if (firstData) {
+            linechart.animateX(1500, Easing.EasingOption.Linear);
+        } else {
+            linechart.invalidate();
+        }
     }
 
-    private Pair<Float, List<Entry>> getFormattedStockHistory(String history) {
-        List<Entry> entries = new ArrayList<>();
-        List<Float> timeData = new ArrayList<>();
-        List<Float> stockPrice = new ArrayList<>();
-        String[] dataPairs = history.split("\\$");
-
-        for (String pair : dataPairs) {
-            String[] entry = pair.split(":");
-            timeData.add(Float.valueOf(entry[0]));
-            stockPrice.add(Float.valueOf(entry[1]));
-        }
-        Collections.reverse(timeData);
-        Collections.reverse(stockPrice);
-        Float referenceTime = timeData.get(0);
-        for (int i = 0; i < timeData.size(); i++) {
-            entries.add(new Entry(timeData.get(i) - referenceTime, stockPrice.get(i)));
+    private Pair<Float, List<Entry>> getFormattedStockHistory(HistorySeries series) {
+        List<Entry> entries = new ArrayList<>(series.size);
+        long referenceTime = series.size > 0 ? series.times[0] : 0;
+        for (int i = 0; i < series.size; i++) {
+            entries.add(new Entry(series.times[i] - referenceTime, series.closes[i]));
         }
-        return new Pair<>(referenceTime, entries);
+        return new Pair<>((float) referenceTime, entries);
     }
 }
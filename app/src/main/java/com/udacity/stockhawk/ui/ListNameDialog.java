@@ -0,0 +1,103 @@
+package com.udacity.stockhawk.ui;
+
+import android.annotation.SuppressLint;
+import android.app.Activity;
+import android.app.AlertDialog;
+import android.app.Dialog;
+import android.app.DialogFragment;
+import android.content.DialogInterface;
+import android.os.Bundle;
+import android.view.KeyEvent;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.Window;
+import android.view.WindowManager;
+import android.widget.EditText;
+import android.widget.TextView;
+
+import com.udacity.stockhawk.R;
+import com.udacity.stockhawk.data.WatchlistStore;
+
+import butterknife.BindView;
+import butterknife.ButterKnife;
+
+/**
+ * Asks for the name of a new watchlist, or a new name for an existing one.
+ */
+public class ListNameDialog extends DialogFragment {
+
+    private static final String ARG_LIST_ID = "list_id";
+    private static final long NEW_LIST = -1;
+
+    @SuppressWarnings("WeakerAccess")
+    @BindView(R.id.dialog_list_name)
+    EditText name;
+
+    static ListNameDialog newList() {
+        return forList(NEW_LIST);
+    }
+
+    static ListNameDialog renameList(long listId) {
+        return forList(listId);
+    }
+
+    private static ListNameDialog forList(long listId) {
+        Bundle args = new Bundle();
+        args.putLong(ARG_LIST_ID, listId);
+        ListNameDialog dialog = new ListNameDialog();
+        dialog.setArguments(args);
+        return dialog;
+    }
+
+    @Override
+    public Dialog onCreateDialog(Bundle savedInstanceState) {
+
+        final long listId = getArguments().getLong(ARG_LIST_ID);
+        AlertDialog.Builder builder = new AlertDialog.Builder(getActivity());
+
+        LayoutInflater inflater = LayoutInflater.from(getActivity());
+        @SuppressLint("InflateParams") View custom = inflater.inflate(R.layout.list_name_dialog, null);
+
+        ButterKnife.bind(this, custom);
+
+        if (savedInstanceState == null && listId != NEW_LIST) {
+            name.setText(WatchlistStore.getLists(getActivity()).get(listId));
+            name.setSelection(name.length());
+        }
+        name.setOnEditorActionListener(new TextView.OnEditorActionListener() {
+            @Override
+            public boolean onEditorAction(TextView v, int actionId, KeyEvent event) {
+                save(listId);
+                return true;
+            }
+        });
+        builder.setView(custom);
+        builder.setMessage(getString(listId == NEW_LIST ? R.string.action_new_list : R.string.action_rename_list));
+        builder.setPositiveButton(getString(R.string.list_dialog_save),
+                new DialogInterface.OnClickListener() {
+                    public void onClick(DialogInterface dialog, int id) {
+                        save(listId);
+                    }
+                });
+        builder.setNegativeButton(getString(R.string.dialog_cancel), null);
+        Dialog dialog = builder.create();
+        Window window = dialog.getWindow();
+        if (window != null) {
+            window.setSoftInputMode(WindowManager.LayoutParams.SOFT_INPUT_STATE_VISIBLE);
+        }
+        return dialog;
+    }
+
+    private void save(long listId) {
+        String text = name.getText().toString().trim();
+        Activity parent = getActivity();
+        if (!text.isEmpty() && parent instanceof MainActivity) {
+            if (listId == NEW_LIST) {
+                ((MainActivity) parent).showList(WatchlistStore.createList(parent, text));
+            } else {
+                WatchlistStore.renameList(parent, listId, text);
+            }
+        }
+        dismissAllowingStateLoss();
+    }
+}
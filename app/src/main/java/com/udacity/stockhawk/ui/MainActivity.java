@@ -3,10 +3,10 @@ package com.udacity.stockhawk.ui;
 import android.annotation.SuppressLint;
 import android.content.BroadcastReceiver;
 import android.content.Context;
+import android.content.DialogInterface;
 import android.content.Intent;
 import android.content.IntentFilter;
 import android.content.SharedPreferences;
-import android.database.Cursor;
 import android.net.ConnectivityManager;
 import android.net.NetworkInfo;
 import android.net.Uri;
@@ -17,11 +17,9 @@ import android.support.design.widget.FloatingActionButton;
 import android.support.design.widget.Snackbar;
 import android.support.v4.app.ActivityCompat;
 import android.support.v4.app.ActivityOptionsCompat;
-import android.support.v4.app.LoaderManager;
-import android.support.v4.content.CursorLoader;
-import android.support.v4.content.Loader;
 import android.support.v4.util.Pair;
 import android.support.v4.widget.SwipeRefreshLayout;
+import android.support.v7.app.AlertDialog;
 import android.support.v7.app.AppCompatActivity;
 import android.support.v7.widget.LinearLayoutManager;
 import android.support.v7.widget.RecyclerView;
@@ -37,19 +35,25 @@ import android.widget.Toast;
 import com.udacity.stockhawk.R;
 import com.udacity.stockhawk.data.Contract;
 import com.udacity.stockhawk.data.PrefUtils;
+import com.udacity.stockhawk.data.QuoteCache;
+import com.udacity.stockhawk.data.QuoteSnapshot;
+import com.udacity.stockhawk.data.WatchlistStore;
 import com.udacity.stockhawk.sync.QuoteSyncJob;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import butterknife.BindView;
 import butterknife.ButterKnife;
 import timber.log.Timber;
 
-public class MainActivity extends AppCompatActivity implements LoaderManager.LoaderCallbacks<Cursor>,
+public class MainActivity extends AppCompatActivity implements QuoteCache.Listener,
+        WatchlistStore.Listener,
         SwipeRefreshLayout.OnRefreshListener,
         SharedPreferences.OnSharedPreferenceChangeListener,
         ViewTreeObserver.OnPreDrawListener,
         StockAdapter.StockAdapterOnClickHandler {
 
-    private static final int STOCK_LOADER = 1;
     @BindView(R.id.recycler_view)
     public RecyclerView recyclerView;
     @BindView(R.id.fab)
@@ -64,6 +68,7 @@ public class MainActivity extends AppCompatActivity implements LoaderManager.Loa
     public CoordinatorLayout activityMainLayout;
     private StockAdapter adapter;
     private Snackbar snackbar;
+    private long listId;
     private final BroadcastReceiver broadcastReceiver = new BroadcastReceiver() {
         @Override
         public void onReceive(Context context, Intent intent) {
@@ -95,8 +100,10 @@ public class MainActivity extends AppCompatActivity implements LoaderManager.Loa
             swipeRefreshLayout.setRefreshing(true);
         }
         setSlideAction();
-        getSupportActionBar().setTitle(R.string.app_name);
-        getSupportLoaderManager().initLoader(STOCK_LOADER, null, this);
+        listId = WatchlistStore.resolveList(this, PrefUtils.getSelectedList(this));
+        updateTitle();
+        QuoteCache.addListener(this, this);
+        WatchlistStore.addListener(this);
         SharedPreferences sp = PreferenceManager.getDefaultSharedPreferences(this);
         sp.registerOnSharedPreferenceChangeListener(this);
         registerReceiver(broadcastReceiver, new IntentFilter(ConnectivityManager.CONNECTIVITY_ACTION));
@@ -110,8 +117,18 @@ public class MainActivity extends AppCompatActivity implements LoaderManager.Loa
         return true;
     }
 
+    @Override
+    public boolean onPrepareOptionsMenu(Menu menu) {
+        boolean severalLists = WatchlistStore.getLists(this).size() > 1;
+        menu.findItem(R.id.action_switch_list).setVisible(severalLists);
+        menu.findItem(R.id.action_delete_list).setVisible(severalLists);
+        return super.onPrepareOptionsMenu(menu);
+    }
+
     @Override
     protected void onDestroy() {
+        QuoteCache.removeListener(this);
+        WatchlistStore.removeListener(this);
         SharedPreferences sp = PreferenceManager.getDefaultSharedPreferences(this);
         sp.unregisterOnSharedPreferenceChangeListener(this);
         unregisterReceiver(broadcastReceiver);
@@ -119,28 +136,102 @@ public class MainActivity extends AppCompatActivity implements LoaderManager.Loa
     }
 
     private void setSlideAction() {
-        new ItemTouchHelper(new ItemTouchHelper.SimpleCallback(0, ItemTouchHelper.RIGHT) {
+        new ItemTouchHelper(new ItemTouchHelper.SimpleCallback(
+                ItemTouchHelper.UP | ItemTouchHelper.DOWN, ItemTouchHelper.RIGHT) {
+            private boolean moved;
+
             @Override
             public boolean onMove(RecyclerView recyclerView, RecyclerView.ViewHolder viewHolder, RecyclerView.ViewHolder target) {
-                return false;
+                // Only the adapter follows the drag; the new order is stored once it is dropped.
+                adapter.moveItem(viewHolder.getAdapterPosition(), target.getAdapterPosition());
+                moved = true;
+                return true;
+            }
+
+            @Override
+            public void clearView(RecyclerView recyclerView, RecyclerView.ViewHolder viewHolder) {
+                super.clearView(recyclerView, viewHolder);
+                if (moved) {
+                    moved = false;
+                    WatchlistStore.reorder(MainActivity.this, listId, adapter.getSymbols());
+                    QuoteSyncJob.updateWidget(MainActivity.this);
+                }
             }
 
             @Override
             public void onSwiped(RecyclerView.ViewHolder viewHolder, int direction) {
                 String symbol = adapter.getSymbolAtPosition(viewHolder.getAdapterPosition());
-                int stockSize = PrefUtils.removeStock(MainActivity.this, symbol);
+                WatchlistStore.remove(MainActivity.this, listId, symbol);
                 // TODO: 11/28/2016 Add undo action
-                int x = getContentResolver().delete(Contract.Quote.makeUriForStock(symbol), null, null);
-                Timber.d(String.valueOf(x), "Deleted rows");
+                deleteQuoteIfUnlisted(symbol);
                 QuoteSyncJob.updateWidget(MainActivity.this);
-                if (stockSize == 0) {
-                    adapter.setCursor(null);
-                    updateEmptyView();
-                }
             }
         }).attachToRecyclerView(recyclerView);
     }
 
+    /**
+     * Deletes the stored quote of {@code symbol} once no list holds it; other lists
+     * still show it otherwise.
+     */
+    private void deleteQuoteIfUnlisted(String symbol) {
+        if (!WatchlistStore.contains(this, symbol)) {
+            int x = getContentResolver().delete(Contract.Quote.makeUriForStock(symbol), null, null);
+            Timber.d(String.valueOf(x), "Deleted rows");
+            QuoteCache.remove(symbol);
+        }
+    }
+
+    /**
+     * Shows {@code listId} here and in the widget.
+     */
+    void showList(long listId) {
+        this.listId = listId;
+        PrefUtils.setSelectedList(this, listId);
+        onWatchlistChanged();
+        QuoteSyncJob.updateWidget(this);
+    }
+
+    private void updateTitle() {
+        String name = WatchlistStore.getLists(this).get(listId);
+        getSupportActionBar().setTitle(name != null ? name : getString(R.string.app_name));
+    }
+
+    private void showListPicker() {
+        final List<Long> ids = new ArrayList<>(WatchlistStore.getLists(this).keySet());
+        List<String> names = new ArrayList<>(WatchlistStore.getLists(this).values());
+        new AlertDialog.Builder(this)
+                .setTitle(R.string.action_switch_list)
+                .setSingleChoiceItems(names.toArray(new String[names.size()]), ids.indexOf(listId),
+                        new DialogInterface.OnClickListener() {
+                            @Override
+                            public void onClick(DialogInterface dialog, int which) {
+                                showList(ids.get(which));
+                                dialog.dismiss();
+                            }
+                        })
+                .setNegativeButton(R.string.dialog_cancel, null)
+                .show();
+    }
+
+    private void confirmDeleteList() {
+        final long deleted = listId;
+        new AlertDialog.Builder(this)
+                .setMessage(getString(R.string.delete_list_message, WatchlistStore.getLists(this).get(deleted)))
+                .setPositiveButton(R.string.dialog_delete, new DialogInterface.OnClickListener() {
+                    @Override
+                    public void onClick(DialogInterface dialog, int which) {
+                        List<String> symbols = WatchlistStore.getSymbols(MainActivity.this, deleted);
+                        WatchlistStore.deleteList(MainActivity.this, deleted);
+                        for (String symbol : symbols) {
+                            deleteQuoteIfUnlisted(symbol);
+                        }
+                        showList(WatchlistStore.resolveList(MainActivity.this, deleted));
+                    }
+                })
+                .setNegativeButton(R.string.dialog_cancel, null)
+                .show();
+    }
+
     @Override
     public boolean onOptionsItemSelected(MenuItem item) {
         int id = item.getItemId();
@@ -148,12 +239,24 @@ public class MainActivity extends AppCompatActivity implements LoaderManager.Loa
         if (id == R.id.action_change_units) {
             PrefUtils.toggleDisplayMode(this);
             setDisplayModeMenuItemIcon(item);
-            adapter.notifyDataSetChanged();
+            adapter.onDisplayModeChanged();
             getWindow().getDecorView().findViewById(R.id.action_change_units)
                     .announceForAccessibility(
                             String.format(getString(R.string.display_mode_change_cd),
                                     PrefUtils.getDisplayMode(this))
                     );
+        } else if (id == R.id.action_switch_list) {
+            showListPicker();
+            return true;
+        } else if (id == R.id.action_new_list) {
+            ListNameDialog.newList().show(getFragmentManager(), "ListNameDialogFragment");
+            return true;
+        } else if (id == R.id.action_rename_list) {
+            ListNameDialog.renameList(listId).show(getFragmentManager(), "ListNameDialogFragment");
+            return true;
+        } else if (id == R.id.action_delete_list) {
+            confirmDeleteList();
+            return true;
         }
         return super.onOptionsItemSelected(item);
     }
@@ -201,25 +304,30 @@ public class MainActivity extends AppCompatActivity implements LoaderManager.Loa
     }
 
     @Override
-    public Loader<Cursor> onCreateLoader(int id, Bundle args) {
-        return new CursorLoader(this,
-                Contract.Quote.URI,
-                Contract.Quote.QUOTE_COLUMNS.toArray(new String[]{}),
-                null, null, Contract.Quote.COLUMN_SYMBOL);
-    }
-
-    @Override
-    public void onLoadFinished(Loader<Cursor> loader, Cursor data) {
-        adapter.setCursor(data);
+    public void onQuotesChanged(QuoteSnapshot snapshot) {
+        adapter.setQuotes(snapshot.getRows(WatchlistStore.getSymbols(this, listId)));
         swipeRefreshLayout.setRefreshing(false);
         updateEmptyView();
-        if (data.getCount() == 0) {
+        if (snapshot.size() == 0) {
             supportStartPostponedEnterTransition();
         } else {
             recyclerView.getViewTreeObserver().addOnPreDrawListener(this);
         }
     }
 
+    @Override
+    public void onWatchlistChanged() {
+        // The shown list may have been deleted, or renamed.
+        listId = WatchlistStore.resolveList(this, listId);
+        updateTitle();
+        supportInvalidateOptionsMenu();
+        QuoteSnapshot snapshot = QuoteCache.peek();
+        if (snapshot != null) {
+            adapter.setQuotes(snapshot.getRows(WatchlistStore.getSymbols(this, listId)));
+        }
+        updateEmptyView();
+    }
+
     @SuppressLint("SwitchIntDef")
     private void updateEmptyView() {
         int message;
@@ -246,7 +354,7 @@ public class MainActivity extends AppCompatActivity implements LoaderManager.Loa
             if (!isNetworkUp()) {
                 message = R.string.error_no_network;
             }
-            if (PrefUtils.getStocks(this).size() == 0) {
+            if (WatchlistStore.getSymbols(this, listId).isEmpty()) {
                 message = R.string.error_no_stocks;
             }
             error.setText(message);
@@ -255,12 +363,6 @@ public class MainActivity extends AppCompatActivity implements LoaderManager.Loa
         }
     }
 
-    @Override
-    public void onLoaderReset(Loader<Cursor> loader) {
-        adapter.setCursor(null);
-        updateEmptyView();
-    }
-
     public void addStock(String symbol) {
         if (symbol != null && !symbol.isEmpty()) {
 
@@ -271,8 +373,8 @@ public class MainActivity extends AppCompatActivity implements LoaderManager.Loa
                 Toast.makeText(this, message, Toast.LENGTH_LONG).show();
                 showInternetOffSnackBar();
             }
-            PrefUtils.addStock(this, symbol);
-            QuoteSyncJob.syncImmediately(this);
+            WatchlistStore.add(this, listId, symbol);
+            QuoteSyncJob.syncSymbol(this, symbol);
         }
     }
 
@@ -1,8 +1,12 @@
 package com.udacity.stockhawk.ui;
 
 import android.content.Context;
-import android.database.Cursor;
+import android.os.AsyncTask;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.MainThread;
 import android.support.v4.view.ViewCompat;
+import android.support.v7.util.DiffUtil;
 import android.support.v7.widget.RecyclerView;
 import android.view.LayoutInflater;
 import android.view.View;
@@ -10,45 +14,169 @@ import android.view.ViewGroup;
 import android.widget.TextView;
 
 import com.udacity.stockhawk.R;
-import com.udacity.stockhawk.data.Contract;
 import com.udacity.stockhawk.data.PrefUtils;
+import com.udacity.stockhawk.data.QuoteRow;
+import com.udacity.stockhawk.utils.PriceFormatter;
 
-import java.text.DecimalFormat;
-import java.text.NumberFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 
 import butterknife.BindView;
 import butterknife.ButterKnife;
+import timber.log.Timber;
 
+/**
+ * Shows an immutable list of quotes. Each new list, or a display mode change,
+ * is formatted into {@link StockItem}s and diffed against the shown items in the
+ * background; only the rows that moved or whose displayed values changed are
+ * rebound, and a value change rebinds just the price or change view. Binding
+ * reads no preferences or resources and formats nothing.
+ */
 public class StockAdapter extends RecyclerView.Adapter<StockAdapter.StockViewHolder> {
 
+    /**
+     * Partial-bind payloads, combined as flags.
+     */
+    private static final int PAYLOAD_PRICE = 1;
+    private static final int PAYLOAD_CHANGE = 1 << 1;
+
     final private Context context;
-    final private DecimalFormat dollarFormat;
-    final private DecimalFormat percentageFormat;
     final private StockAdapterOnClickHandler clickHandler;
-    private Cursor cursor;
+    final private Handler mainHandler = new Handler(Looper.getMainLooper());
+    final private Map<String, Long> itemIds = new HashMap<>();
+    final private String priceDescription;
+    final private String increaseDescription;
+    final private String decreaseDescription;
+    final private String priceTransitionName;
+    final private String changeTransitionName;
+    private boolean absoluteChange;
+    private List<QuoteRow> quotes = Collections.emptyList();
+    private List<StockItem> items = Collections.emptyList();
+    private boolean pending;
+    private int generation;
 
     StockAdapter(Context context, StockAdapterOnClickHandler clickHandler) {
         this.context = context;
         this.clickHandler = clickHandler;
 
-        dollarFormat = (DecimalFormat) NumberFormat.getCurrencyInstance(Locale.getDefault());
-        percentageFormat = (DecimalFormat) NumberFormat.getPercentInstance(Locale.getDefault());
-        percentageFormat.setMaximumFractionDigits(2);
-        percentageFormat.setMinimumFractionDigits(2);
+        priceDescription = context.getString(R.string.stock_price_cd);
+        increaseDescription = context.getString(R.string.stock_increment_cd);
+        decreaseDescription = context.getString(R.string.stock_decrement_cd);
+        priceTransitionName = context.getString(R.string.stock_price_transition_name);
+        changeTransitionName = context.getString(R.string.stock_change_transition_name);
+        absoluteChange = isAbsoluteChange();
+        setHasStableIds(true);
+        logFormatting(Locale.getDefault());
+    }
+
+    /**
+     * Logs which styles the rows are formatted with in fixed point on this
+     * platform, and which fall back to DecimalFormat.
+     */
+    private static void logFormatting(Locale locale) {
+        PriceFormatter formatter = PriceFormatter.getInstance(locale);
+        EnumSet<PriceFormatter.Style> fixedPoint = EnumSet.noneOf(PriceFormatter.Style.class);
+        for (PriceFormatter.Style style : PriceFormatter.Style.values()) {
+            if (formatter.isFixedPoint(style)) {
+                fixedPoint.add(style);
+            }
+        }
+        Timber.d("Prices in %s: fixed point for %s, DecimalFormat for %s",
+                locale, fixedPoint, EnumSet.complementOf(fixedPoint));
+    }
+
+    /**
+     * Shows {@code updated} once it has been formatted and diffed against the
+     * shown list. A list set before the previous one was applied supersedes it.
+     */
+    @MainThread
+    public void setQuotes(List<QuoteRow> updated) {
+        quotes = updated;
+        submit();
     }
 
-    public void setCursor(Cursor cursor) {
-        if (this.cursor != null) {
-            this.cursor.close();
+    /**
+     * Reformats the change of every row, after the display mode was toggled.
+     */
+    @MainThread
+    void onDisplayModeChanged() {
+        absoluteChange = isAbsoluteChange();
+        submit();
+    }
+
+    private void submit() {
+        final int submitted = ++generation;
+        final List<StockItem> previous = items;
+        final List<QuoteRow> updated = quotes;
+        final StockItemFactory factory = new StockItemFactory(Locale.getDefault(), absoluteChange,
+                priceDescription, increaseDescription, decreaseDescription,
+                priceTransitionName, changeTransitionName);
+        if (previous.isEmpty() || updated.isEmpty()) {
+            // Nothing to diff; apply at once so the empty view is up to date.
+            pending = false;
+            items = factory.create(updated);
+            if (previous.isEmpty()) {
+                notifyItemRangeInserted(0, updated.size());
+            } else {
+                notifyItemRangeRemoved(0, previous.size());
+            }
+            return;
         }
-        this.cursor = cursor;
-        notifyDataSetChanged();
+        pending = true;
+        AsyncTask.THREAD_POOL_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                final List<StockItem> next = factory.create(updated);
+                final DiffUtil.DiffResult diff = DiffUtil.calculateDiff(new ItemDiff(previous, next));
+                mainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (submitted != generation) {
+                            return;
+                        }
+                        pending = false;
+                        items = next;
+                        diff.dispatchUpdatesTo(StockAdapter.this);
+                    }
+                });
+            }
+        });
+    }
+
+    private boolean isAbsoluteChange() {
+        return PrefUtils.getDisplayMode(context)
+                .equals(context.getString(R.string.pref_display_mode_absolute_key));
     }
 
     public String getSymbolAtPosition(int position) {
-        cursor.moveToPosition(position);
-        return cursor.getString(Contract.Quote.POSITION_SYMBOL);
+        return items.get(position).symbol;
+    }
+
+    /**
+     * @return the symbols in the order shown.
+     */
+    List<String> getSymbols() {
+        List<String> symbols = new ArrayList<>(items.size());
+        for (StockItem item : items) {
+            symbols.add(item.symbol);
+        }
+        return symbols;
+    }
+
+    void moveItem(int from, int to) {
+        List<StockItem> moved = new ArrayList<>(items);
+        moved.add(to, moved.remove(from));
+        items = moved;
+        notifyItemMoved(from, to);
+        if (pending) {
+            // The diff in flight was computed against the order before the move.
+            submit();
+        }
     }
 
     @Override
@@ -62,50 +190,115 @@ public class StockAdapter extends RecyclerView.Adapter<StockAdapter.StockViewHol
     @Override
     public void onBindViewHolder(StockViewHolder holder, int position) {
 
-        if (cursor != null) {
-            cursor.moveToPosition(position);
+        StockItem item = items.get(position);
 
-            holder.symbol.setText(cursor.getString(Contract.Quote.POSITION_SYMBOL));
-            holder.price.setText(dollarFormat.format(cursor.getFloat(Contract.Quote.POSITION_PRICE)));
-            holder.price.setContentDescription(String.format(context.getString(R.string.stock_price_cd), holder.price.getText()));
+        holder.symbol.setText(item.symbol);
+        bindPrice(holder, item);
+        bindChange(holder, item);
+        ViewCompat.setTransitionName(holder.price, item.priceTransitionName);
+        ViewCompat.setTransitionName(holder.change, item.changeTransitionName);
+    }
 
-            float rawAbsoluteChange = cursor.getFloat(Contract.Quote.POSITION_ABSOLUTE_CHANGE);
-            float percentageChange = cursor.getFloat(Contract.Quote.POSITION_PERCENTAGE_CHANGE);
+    @Override
+    public void onBindViewHolder(StockViewHolder holder, int position, List<Object> payloads) {
+        if (payloads.isEmpty()) {
+            onBindViewHolder(holder, position);
+            return;
+        }
+        int changed = 0;
+        for (Object payload : payloads) {
+            changed |= (Integer) payload;
+        }
+        StockItem item = items.get(position);
+        if ((changed & PAYLOAD_PRICE) != 0) {
+            bindPrice(holder, item);
+        }
+        if ((changed & PAYLOAD_CHANGE) != 0) {
+            bindChange(holder, item);
+        }
+    }
 
-            String change = dollarFormat.format(rawAbsoluteChange);
-            String percentage = percentageFormat.format(percentageChange / 100);
+    private static void bindPrice(StockViewHolder holder, StockItem item) {
+        holder.price.setText(item.price);
+        holder.price.setContentDescription(item.priceDescription);
+    }
 
-            if (PrefUtils.getDisplayMode(context)
-                    .equals(context.getString(R.string.pref_display_mode_absolute_key))) {
-                holder.change.setText(change);
-            } else {
-                holder.change.setText(percentage);
-            }
+    private static void bindChange(StockViewHolder holder, StockItem item) {
+        holder.change.setText(item.change);
+        holder.change.setBackgroundResource(item.gain
+                ? R.drawable.percent_change_pill_green
+                : R.drawable.percent_change_pill_red);
+        holder.change.setContentDescription(item.changeDescription);
+    }
 
-            if (rawAbsoluteChange > 0) {
-                holder.change.setBackgroundResource(R.drawable.percent_change_pill_green);
-                holder.change.setContentDescription(
-                        String.format(context.getString(R.string.stock_increment_cd), holder.change.getText()));
-            } else {
-                holder.change.setBackgroundResource(R.drawable.percent_change_pill_red);
-                holder.change.setContentDescription(
-                        String.format(context.getString(R.string.stock_decrement_cd), holder.change.getText()));
-            }
-            ViewCompat.setTransitionName(holder.price, context.getString(R.string.stock_price_transition_name) + position);
-            ViewCompat.setTransitionName(holder.change, context.getString(R.string.stock_change_transition_name) + position);
+    /**
+     * Ids are assigned per symbol on first sight, so they survive reordering.
+     */
+    @Override
+    public long getItemId(int position) {
+        String symbol = items.get(position).symbol;
+        Long id = itemIds.get(symbol);
+        if (id == null) {
+            id = (long) itemIds.size();
+            itemIds.put(symbol, id);
         }
+        return id;
     }
 
     @Override
     public int getItemCount() {
-        int count = 0;
-        if (cursor != null) {
-            count = cursor.getCount();
-        }
-        return count;
+        return items.size();
     }
 
 
+    /**
+     * Items are the same row when their symbols match, and only the text the row
+     * shows is compared.
+     */
+    private static final class ItemDiff extends DiffUtil.Callback {
+        private final List<StockItem> oldItems;
+        private final List<StockItem> newItems;
+
+        ItemDiff(List<StockItem> oldItems, List<StockItem> newItems) {
+            this.oldItems = oldItems;
+            this.newItems = newItems;
+        }
+
+        @Override
+        public int getOldListSize() {
+            return oldItems.size();
+        }
+
+        @Override
+        public int getNewListSize() {
+            return newItems.size();
+        }
+
+        @Override
+        public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+            return oldItems.get(oldItemPosition).symbol.equals(newItems.get(newItemPosition).symbol);
+        }
+
+        @Override
+        public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+            return getChangePayload(oldItemPosition, newItemPosition) == 0;
+        }
+
+        @Override
+        public Integer getChangePayload(int oldItemPosition, int newItemPosition) {
+            StockItem oldItem = oldItems.get(oldItemPosition);
+            StockItem newItem = newItems.get(newItemPosition);
+            int payload = 0;
+            if (!oldItem.price.equals(newItem.price)) {
+                payload |= PAYLOAD_PRICE;
+            }
+            if (!oldItem.change.equals(newItem.change) || oldItem.gain != newItem.gain) {
+                payload |= PAYLOAD_CHANGE;
+            }
+            return payload;
+        }
+    }
+
     interface StockAdapterOnClickHandler {
         void onClick(String symbol, StockViewHolder viewHolder);
     }
@@ -129,9 +322,7 @@ public class StockAdapter extends RecyclerView.Adapter<StockAdapter.StockViewHol
         public void onClick(View v) {
             int adapterPosition = getAdapterPosition();
             if (adapterPosition >= 0) {
-                cursor.moveToPosition(adapterPosition);
-                int symbolColumn = cursor.getColumnIndex(Contract.Quote.COLUMN_SYMBOL);
-                clickHandler.onClick(cursor.getString(symbolColumn), this);
+                clickHandler.onClick(items.get(adapterPosition).symbol, this);
             }
         }
     }
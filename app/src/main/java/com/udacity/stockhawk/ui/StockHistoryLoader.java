@@ -0,0 +1,86 @@
+package com.udacity.stockhawk.ui;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.net.Uri;
+import android.support.v4.content.AsyncTaskLoader;
+
+import com.udacity.stockhawk.data.Contract;
+import com.udacity.stockhawk.utils.HistoryCodec;
+import com.udacity.stockhawk.utils.StockHistory;
+
+/**
+ * Reads the history columns of one quote row and decodes them into a
+ * {@link StockHistory}. The row is read again whenever the provider reports a
+ * change to it.
+ */
+class StockHistoryLoader extends AsyncTaskLoader<StockHistory> {
+
+    private final Uri stockUri;
+    private final ForceLoadContentObserver observer = new ForceLoadContentObserver();
+    private StockHistory history;
+    private boolean observing = false;
+
+    StockHistoryLoader(Context context, Uri stockUri) {
+        super(context);
+        this.stockUri = stockUri;
+    }
+
+    @Override
+    public StockHistory loadInBackground() {
+        Cursor cursor = getContext().getContentResolver().query(stockUri,
+                Contract.Quote.DETAIL_HISTORY_COLUMNS.toArray(new String[]{}),
+                null, null, null);
+        if (cursor == null) {
+            return null;
+        }
+        try {
+            if (!cursor.moveToFirst()) {
+                return null;
+            }
+            return new StockHistory(
+                    HistoryCodec.decode(cursor.getBlob(Contract.Quote.POSITION_HISTORY_MONTH)),
+                    HistoryCodec.decode(cursor.getBlob(Contract.Quote.POSITION_HISTORY_WEEK)),
+                    HistoryCodec.decode(cursor.getBlob(Contract.Quote.POSITION_HISTORY_DAY)));
+        } finally {
+            cursor.close();
+        }
+    }
+
+    @Override
+    public void deliverResult(StockHistory data) {
+        history = data;
+        if (isStarted()) {
+            super.deliverResult(data);
+        }
+    }
+
+    @Override
+    protected void onStartLoading() {
+        if (!observing) {
+            getContext().getContentResolver().registerContentObserver(stockUri, false, observer);
+            observing = true;
+        }
+        if (history != null) {
+            deliverResult(history);
+        }
+        if (takeContentChanged() || history == null) {
+            forceLoad();
+        }
+    }
+
+    @Override
+    protected void onStopLoading() {
+        cancelLoad();
+    }
+
+    @Override
+    protected void onReset() {
+        onStopLoading();
+        if (observing) {
+            getContext().getContentResolver().unregisterContentObserver(observer);
+            observing = false;
+        }
+        history = null;
+    }
+}
@@ -0,0 +1,33 @@
+package com.udacity.stockhawk.ui;
+
+/**
+ * What one row of the stock list shows, formatted by {@link StockItemFactory}
+ * once per quote snapshot, so binding a row only copies fields into its views.
+ * Instances are immutable.
+ */
+final class StockItem {
+
+    final String symbol;
+    final String price;
+    final String priceDescription;
+    /**
+     * The absolute or percentage change, as the display mode asks.
+     */
+    final String change;
+    final String changeDescription;
+    final boolean gain;
+    final String priceTransitionName;
+    final String changeTransitionName;
+
+    StockItem(String symbol, String price, String priceDescription, String change, String changeDescription,
+              boolean gain, String priceTransitionName, String changeTransitionName) {
+        this.symbol = symbol;
+        this.price = price;
+        this.priceDescription = priceDescription;
+        this.change = change;
+        this.changeDescription = changeDescription;
+        this.gain = gain;
+        this.priceTransitionName = priceTransitionName;
+        this.changeTransitionName = changeTransitionName;
+    }
+}
@@ -0,0 +1,66 @@
+package com.udacity.stockhawk.ui;
+
+import com.udacity.stockhawk.data.QuoteRow;
+import com.udacity.stockhawk.utils.PriceFormatter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Formats quotes into {@link StockItem}s for one display mode. The resource
+ * strings are passed in rather than looked up, so a factory can be built per
+ * snapshot and used off the main thread.
+ */
+final class StockItemFactory {
+
+    private final PriceFormatter formatter;
+    private final boolean absoluteChange;
+    private final String priceDescription;
+    private final String increaseDescription;
+    private final String decreaseDescription;
+    private final String priceTransitionName;
+    private final String changeTransitionName;
+
+    /**
+     * @param absoluteChange whether rows show the absolute change rather than the percentage.
+     * @param priceDescription format of the price content description, with the price as its argument.
+     */
+    StockItemFactory(Locale locale, boolean absoluteChange, String priceDescription,
+                     String increaseDescription, String decreaseDescription,
+                     String priceTransitionName, String changeTransitionName) {
+        this.formatter = PriceFormatter.getInstance(locale);
+        this.absoluteChange = absoluteChange;
+        this.priceDescription = priceDescription;
+        this.increaseDescription = increaseDescription;
+        this.decreaseDescription = decreaseDescription;
+        this.priceTransitionName = priceTransitionName;
+        this.changeTransitionName = changeTransitionName;
+    }
+
+    StockItem create(QuoteRow quote) {
+        String price = formatter.formatCurrency(quote.price);
+        String change = absoluteChange
+                ? formatter.formatCurrency(quote.absoluteChange)
+                : formatter.formatPercentage(quote.percentageChange / 100);
+        boolean gain = quote.absoluteChange > 0;
+        return new StockItem(
+                quote.symbol,
+                price,
+                String.format(priceDescription, price),
+                change,
+                String.format(gain ? increaseDescription : decreaseDescription, change),
+                gain,
+                priceTransitionName + quote.symbol,
+                changeTransitionName + quote.symbol);
+    }
+
+    List<StockItem> create(List<QuoteRow> quotes) {
+        List<StockItem> items = new ArrayList<>(quotes.size());
+        for (QuoteRow quote : quotes) {
+            items.add(create(quote));
+        }
+        return Collections.unmodifiableList(items);
+    }
+}
@@ -8,8 +8,6 @@ import com.github.mikephil.charting.data.Entry;
 import com.github.mikephil.charting.highlight.Highlight;
 import com.udacity.stockhawk.R;
 
-import java.text.DecimalFormat;
-import java.text.NumberFormat;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.Locale;
@@ -25,7 +23,7 @@ public class CustomMarkerView extends MarkerView {
     private final TextView textView;
     private final Entry finalEntry;
     private final Float referenceTime;
-    private final DecimalFormat dollarFormat;
+    private final PriceFormatter priceFormatter;
 
     /**
      * Constructor. Sets up the MarkerView with a custom layout resource.
@@ -41,7 +39,7 @@ public class CustomMarkerView extends MarkerView {
         date = new Date();
         this.finalEntry = finalEntry;
         this.referenceTime = referenceTime;
-        dollarFormat = (DecimalFormat) NumberFormat.getCurrencyInstance(Locale.getDefault());
+        priceFormatter = PriceFormatter.getInstance(Locale.getDefault());
     }
 
     @Override
@@ -50,7 +48,7 @@ public class CustomMarkerView extends MarkerView {
         Float stockValue = e.getY();
         date.setTime((long) (e.getX() + referenceTime));
         String formattedDate = dateFormat.format(date);
-        textView.setText(String.format(getContext().getString(R.string.marker_text), dollarFormat.format(stockValue), formattedDate));
+        textView.setText(String.format(getContext().getString(R.string.marker_text), priceFormatter.formatCurrency(stockValue), formattedDate));
 
         if (e.getX() >= finalEntry.getX()) {
             setOffset(-256, -32);
@@ -0,0 +1,219 @@
+package com.udacity.stockhawk.utils;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Compact binary encoding for price histories, stored as a BLOB per series.
+ * <p>
+ * Layout: a version byte, the point count, then every timestamp as a delta from
+ * the previous one, then every close as a delta from the previous one. Closes are
+ * fixed-point with four decimal places. All numbers are zigzag varints, and points
+ * are stored oldest first so readers never have to reverse them.
+ */
+public final class HistoryCodec {
+
+    public static final int PRICE_SCALE = 10000;
+
+    private static final byte VERSION = 1;
+    private static final int MAX_VARINT_BYTES = 10;
+
+    private HistoryCodec() {
+    }
+
+    /**
+     * @param close a closing price.
+     * @return the price in fixed-point units of 1/{@link #PRICE_SCALE}.
+     */
+    public static long toFixedPoint(BigDecimal close) {
+        return close.movePointRight(4).setScale(0, RoundingMode.HALF_UP).longValue();
+    }
+
+    /**
+     * @param times  timestamps in milliseconds, in chronological order.
+     * @param closes fixed-point closes matching {@code times}.
+     * @param count  number of points to encode.
+     */
+    public static byte[] encode(long[] times, long[] closes, int count) {
+        byte[] buffer = new byte[1 + MAX_VARINT_BYTES * (1 + 2 * count)];
+        int position = 0;
+        buffer[position++] = VERSION;
+        position = writeVarint(buffer, position, count);
+
+        long previous = 0;
+        for (int i = 0; i < count; i++) {
+            position = writeVarint(buffer, position, zigzag(times[i] - previous));
+            previous = times[i];
+        }
+        previous = 0;
+        for (int i = 0; i < count; i++) {
+            position = writeVarint(buffer, position, zigzag(closes[i] - previous));
+            previous = closes[i];
+        }
+
+        byte[] encoded = new byte[position];
+        System.arraycopy(buffer, 0, encoded, 0, position);
+        return encoded;
+    }
+
+    /**
+     * @param encoded bytes produced by {@link #encode}, or null.
+     * @return the decoded series; empty if {@code encoded} is null or empty.
+     */
+    public static HistorySeries decode(byte[] encoded) {
+        int count = size(encoded);
+        long[] times = new long[count];
+        float[] closes = new float[count];
+        decodeInto(encoded, times, closes);
+        return new HistorySeries(times, closes, count);
+    }
+
+    /**
+     * @param encoded bytes produced by {@link #encode}, or null.
+     * @return the number of points in {@code encoded}.
+     */
+    public static int size(byte[] encoded) {
+        if (encoded == null || encoded.length == 0) {
+            return 0;
+        }
+        checkVersion(encoded);
+        return (int) readVarint(encoded, 1);
+    }
+
+    /**
+     * Decodes into caller-owned buffers, so a reader that keeps its buffers
+     * between calls decodes without allocating. The bytes are scanned once.
+     *
+     * @param encoded bytes produced by {@link #encode}, or null.
+     * @param times   receives the timestamps; must hold at least {@link #size} elements.
+     * @param closes  receives the closes; must hold at least {@link #size} elements.
+     * @return the number of points written.
+     */
+    public static int decodeInto(byte[] encoded, long[] times, float[] closes) {
+        return decode(encoded, times, null, closes);
+    }
+
+    /**
+     * Like {@link #decodeInto(byte[], long[], float[])}, but keeps the closes in
+     * fixed point, exactly as they were encoded.
+     */
+    public static int decodeFixedPointInto(byte[] encoded, long[] times, long[] closes) {
+        return decode(encoded, times, closes, null);
+    }
+
+    /**
+     * Writes the closes to whichever of {@code fixedPointCloses} and {@code closes} is not null.
+     */
+    private static int decode(byte[] encoded, long[] times, long[] fixedPointCloses, float[] closes) {
+        int count = size(encoded);
+        if (count == 0) {
+            return 0;
+        }
+        int closesLength = closes != null ? closes.length : fixedPointCloses.length;
+        if (count > times.length || count > closesLength) {
+            throw new IllegalArgumentException("Buffers are too small for " + count + " points");
+        }
+
+        int position = 1 + varintLength(count);
+        long previous = 0;
+        for (int i = 0; i < count; i++) {
+            long value = readVarint(encoded, position);
+            position += varintLength(value);
+            previous += unzigzag(value);
+            times[i] = previous;
+        }
+        previous = 0;
+        for (int i = 0; i < count; i++) {
+            long value = readVarint(encoded, position);
+            position += varintLength(value);
+            previous += unzigzag(value);
+            if (closes != null) {
+                closes[i] = (float) (previous / (double) PRICE_SCALE);
+            } else {
+                fixedPointCloses[i] = previous;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Converts the text format used before the BLOB columns existed, a newest
+     * first list of {@code millis:close$} pairs, into the binary encoding.
+     * Pairs that do not parse, such as the {@code millis:null$} written for bars
+     * without a close, are skipped.
+     */
+    public static byte[] fromLegacyString(String history) {
+        if (history == null || history.isEmpty()) {
+            return encode(new long[0], new long[0], 0);
+        }
+        String[] pairs = history.split("\\$");
+        long[] times = new long[pairs.length];
+        long[] closes = new long[pairs.length];
+        int count = 0;
+        for (int i = pairs.length - 1; i >= 0; i--) {
+            int separator = pairs[i].indexOf(':');
+            if (separator <= 0) {
+                continue;
+            }
+            try {
+                times[count] = Long.parseLong(pairs[i].substring(0, separator));
+                closes[count] = toFixedPoint(new BigDecimal(pairs[i].substring(separator + 1)));
+            } catch (NumberFormatException e) {
+                continue;
+            }
+            count++;
+        }
+        return encode(times, closes, count);
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static int writeVarint(byte[] buffer, int position, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[position++] = (byte) value;
+        return position;
+    }
+
+    private static void checkVersion(byte[] encoded) {
+        if (encoded[0] != VERSION) {
+            throw new IllegalArgumentException("Unknown history encoding version " + encoded[0]);
+        }
+    }
+
+    /**
+     * Reads the varint starting at {@code position}; it is {@link #varintLength}
+     * bytes long, as the encoder writes every value in its shortest form.
+     */
+    private static long readVarint(byte[] buffer, int position) {
+        long value = 0;
+        int shift = 0;
+        byte current;
+        do {
+            current = buffer[position++];
+            value |= (long) (current & 0x7F) << shift;
+            shift += 7;
+        } while ((current & 0x80) != 0);
+        return value;
+    }
+
+    /**
+     * @return the number of bytes {@link #writeVarint} writes for {@code value}.
+     */
+    private static int varintLength(long value) {
+        int length = 1;
+        while ((value & ~0x7FL) != 0) {
+            value >>>= 7;
+            length++;
+        }
+        return length;
+    }
+}
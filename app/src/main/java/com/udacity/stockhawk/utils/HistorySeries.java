@@ -0,0 +1,18 @@
+package com.udacity.stockhawk.utils;
+
+/**
+ * A price history in chronological order, held as two parallel primitive arrays.
+ * Only the first {@link #size} elements of each array are meaningful.
+ */
+public final class HistorySeries {
+
+    public final long[] times;
+    public final float[] closes;
+    public final int size;
+
+    public HistorySeries(long[] times, float[] closes, int size) {
+        this.times = times;
+        this.closes = closes;
+        this.size = size;
+    }
+}
@@ -0,0 +1,322 @@
+package com.udacity.stockhawk.utils;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.text.DecimalFormat;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Formats prices and percentages exactly as the {@link QuoteFormats} of a locale
+ * do, but in fixed point into a per-thread buffer rather than through
+ * DecimalFormat. The prefixes, suffixes and separators of each locale, currency
+ * symbol included, are read from its formats once and the instance is cached,
+ * so instances are cheap to get and safe to share between threads.
+ * <p>
+ * Like DecimalFormat, values are rounded half-even: on their exact binary value
+ * as the JDK does, or on their shortest decimal form as ICU on Android does,
+ * whichever the locale's formats turn out to use. NaN, infinities and values
+ * too large for fixed point are handed to DecimalFormat, as are all values of a
+ * style this cannot reproduce for its locale, such as one with secondary
+ * grouping.
+ */
+public final class PriceFormatter {
+
+    public enum Style {
+        /**
+         * {@link QuoteFormats#currencyFormat}.
+         */
+        CURRENCY,
+        /**
+         * {@link QuoteFormats#dollarFormat}.
+         */
+        PRICE,
+        /**
+         * {@link QuoteFormats#dollarFormatWithPlus}.
+         */
+        SIGNED_PRICE,
+        /**
+         * {@link QuoteFormats#percentageFormat}; expects fractions.
+         */
+        PERCENTAGE,
+        /**
+         * {@link QuoteFormats#wholeDollarFormat}.
+         */
+        WHOLE_PRICE
+    }
+
+    private static final ConcurrentHashMap<Locale, PriceFormatter> instances = new ConcurrentHashMap<>();
+
+    private static final ThreadLocal<StringBuilder> buffers = new ThreadLocal<StringBuilder>() {
+        @Override
+        protected StringBuilder initialValue() {
+            return new StringBuilder(32);
+        }
+    };
+
+    /**
+     * Largest magnitude formatted in fixed point; beyond it cents no longer fit a long exactly.
+     */
+    private static final double MAX_FIXED_POINT = 1e15;
+
+    private static final long[] POWERS_OF_TEN = new long[19];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    private final Layout[] layouts;
+
+    private PriceFormatter(Locale locale) {
+        this(QuoteFormats.currencyFormat(locale), QuoteFormats.dollarFormat(locale),
+                QuoteFormats.dollarFormatWithPlus(locale), QuoteFormats.percentageFormat(locale),
+                QuoteFormats.wholeDollarFormat(locale));
+    }
+
+    PriceFormatter(DecimalFormat currency, DecimalFormat price, DecimalFormat signedPrice,
+                   DecimalFormat percentage, DecimalFormat wholePrice) {
+        layouts = new Layout[Style.values().length];
+        layouts[Style.CURRENCY.ordinal()] = new Layout(currency);
+        layouts[Style.PRICE.ordinal()] = new Layout(price);
+        layouts[Style.SIGNED_PRICE.ordinal()] = new Layout(signedPrice);
+        layouts[Style.PERCENTAGE.ordinal()] = new Layout(percentage);
+        layouts[Style.WHOLE_PRICE.ordinal()] = new Layout(wholePrice);
+    }
+
+    public static PriceFormatter getInstance(Locale locale) {
+        PriceFormatter formatter = instances.get(locale);
+        if (formatter == null) {
+            formatter = new PriceFormatter(locale);
+            PriceFormatter existing = instances.putIfAbsent(locale, formatter);
+            if (existing != null) {
+                formatter = existing;
+            }
+        }
+        return formatter;
+    }
+
+    public String formatCurrency(double value) {
+        return format(Style.CURRENCY, value);
+    }
+
+    public String formatPrice(double value) {
+        return format(Style.PRICE, value);
+    }
+
+    public String formatSignedPrice(double value) {
+        return format(Style.SIGNED_PRICE, value);
+    }
+
+    /**
+     * @param fraction the percentage divided by 100.
+     */
+    public String formatPercentage(double fraction) {
+        return format(Style.PERCENTAGE, fraction);
+    }
+
+    public String formatWholePrice(double value) {
+        return format(Style.WHOLE_PRICE, value);
+    }
+
+    public String format(Style style, double value) {
+        StringBuilder buffer = buffers.get();
+        buffer.setLength(0);
+        return append(buffer, style, value).toString();
+    }
+
+    /**
+     * Appends {@code value} to {@code out} without allocating, for callers that
+     * build a longer text or reuse their own buffer.
+     *
+     * @return {@code out}.
+     */
+    public StringBuilder append(StringBuilder out, Style style, double value) {
+        layouts[style.ordinal()].append(out, value);
+        return out;
+    }
+
+    /**
+     * @return whether {@code style} is formatted in fixed point rather than by DecimalFormat.
+     */
+    public boolean isFixedPoint(Style style) {
+        return layouts[style.ordinal()].fixedPoint;
+    }
+
+    /**
+     * The affixes, separators and digit counts of one DecimalFormat, and a copy
+     * of it to fall back on.
+     */
+    private static final class Layout {
+
+        private static final double[] PROBES = {0, 0.004, 0.005, 0.015, 0.5, 1, 9.995, 1234.5, 1234567.891};
+
+        private final DecimalFormat fallback;
+        private final String positivePrefix;
+        private final String positiveSuffix;
+        private final String negativePrefix;
+        private final String negativeSuffix;
+        private final int multiplier;
+        private final int fractionDigits;
+        private final int minimumIntegerDigits;
+        private final int groupingSize;
+        private final char zeroDigit;
+        private char groupingSeparator;
+        private char decimalSeparator;
+        private boolean roundsShortest;
+        private final boolean fixedPoint;
+
+        Layout(DecimalFormat format) {
+            fallback = format;
+            positivePrefix = format.getPositivePrefix();
+            positiveSuffix = format.getPositiveSuffix();
+            negativePrefix = format.getNegativePrefix();
+            negativeSuffix = format.getNegativeSuffix();
+            multiplier = format.getMultiplier();
+            fractionDigits = format.getMaximumFractionDigits();
+            minimumIntegerDigits = format.getMinimumIntegerDigits();
+            groupingSize = format.isGroupingUsed() ? format.getGroupingSize() : 0;
+            zeroDigit = format.getDecimalFormatSymbols().getZeroDigit();
+            fixedPoint = readSeparators(format)
+                    && format.getMinimumFractionDigits() == fractionDigits
+                    && fractionDigits < 4
+                    && (reproduces(format) || roundsShortest(format));
+        }
+
+        /**
+         * Switches to rounding on the shortest decimal form of values, for a
+         * format that resolves ties such as 0.015 that way.
+         *
+         * @return whether this layout then formats as {@code format} does.
+         */
+        private boolean roundsShortest(DecimalFormat format) {
+            roundsShortest = true;
+            return reproduces(format);
+        }
+
+        /**
+         * Reads the separators off a formatted value, since which of the symbols
+         * a currency format uses differs between platforms.
+         *
+         * @return whether they could be read.
+         */
+        private boolean readSeparators(DecimalFormat format) {
+            DecimalFormat probe = (DecimalFormat) format.clone();
+            probe.setMultiplier(1);
+            probe.setMinimumFractionDigits(1);
+            probe.setMaximumFractionDigits(1);
+            String text = probe.format(1234567.5);
+            if (!text.startsWith(positivePrefix) || !text.endsWith(positiveSuffix)) {
+                return false;
+            }
+            String digits = text.substring(positivePrefix.length(), text.length() - positiveSuffix.length());
+            if (digits.length() < 3 || !isDigit(digits.charAt(digits.length() - 1))) {
+                return false;
+            }
+            decimalSeparator = digits.charAt(digits.length() - 2);
+            if (groupingSize > 0) {
+                int group = 0;
+                while (group < digits.length() && isDigit(digits.charAt(group))) {
+                    group++;
+                }
+                groupingSeparator = digits.charAt(group);
+            }
+            return true;
+        }
+
+        /**
+         * @return whether this layout formats a few telling values as {@code format} does.
+         */
+        private boolean reproduces(DecimalFormat format) {
+            StringBuilder out = new StringBuilder();
+            for (double probe : PROBES) {
+                // Probed as formatted, so ties fall on the last digit of percentages too.
+                double unscaled = BigDecimal.valueOf(probe)
+                        .divide(BigDecimal.valueOf(multiplier), MathContext.DECIMAL64).doubleValue();
+                for (double value : new double[]{unscaled, -unscaled}) {
+                    out.setLength(0);
+                    if (!appendFixedPoint(out, value) || !out.toString().equals(format.format(value))) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+
+        void append(StringBuilder out, double value) {
+            if (!fixedPoint || !appendFixedPoint(out, value)) {
+                synchronized (fallback) {
+                    out.append(fallback.format(value));
+                }
+            }
+        }
+
+        /**
+         * @return false, having appended nothing, if {@code value} does not fit in fixed point.
+         */
+        private boolean appendFixedPoint(StringBuilder out, double value) {
+            double scaled = multiplier == 1 ? value : value * multiplier;
+            double magnitude = Math.abs(scaled);
+            if (!(magnitude < MAX_FIXED_POINT)) {
+                return false;
+            }
+            // Values rounding to zero keep their sign, as in DecimalFormat.
+            boolean negative = scaled < 0 || (scaled == 0 && 1 / scaled < 0);
+            long units = round(magnitude, Math.abs(value));
+            long unit = POWERS_OF_TEN[fractionDigits];
+            long integer = units / unit;
+
+            out.append(negative ? negativePrefix : positivePrefix);
+            int length = Math.max(minimumIntegerDigits, digitCount(integer));
+            for (int i = length - 1; i >= 0; i--) {
+                out.append((char) (zeroDigit + integer / POWERS_OF_TEN[i] % 10));
+                if (groupingSize > 0 && i > 0 && i % groupingSize == 0) {
+                    out.append(groupingSeparator);
+                }
+            }
+            if (fractionDigits > 0) {
+                out.append(decimalSeparator);
+                long fraction = units % unit;
+                for (int i = fractionDigits - 1; i >= 0; i--) {
+                    out.append((char) (zeroDigit + fraction / POWERS_OF_TEN[i] % 10));
+                }
+            }
+            out.append(negative ? negativeSuffix : positiveSuffix);
+            return true;
+        }
+
+        /**
+         * @param magnitude the absolute {@code value} times the multiplier.
+         * @return {@code magnitude} in units of the last fraction digit, rounded half-even.
+         */
+        private long round(double magnitude, double value) {
+            double units = magnitude * POWERS_OF_TEN[fractionDigits];
+            double floor = Math.floor(units);
+            double remainder = units - floor;
+            if (Math.abs(remainder - 0.5) <= 8 * Math.ulp(units)) {
+                // Too close to the midpoint for the scaled double to tell which side
+                // the value is on. ICU applies the multiplier to the decimal form.
+                BigDecimal decimal = roundsShortest
+                        ? BigDecimal.valueOf(value).multiply(BigDecimal.valueOf(multiplier))
+                        : new BigDecimal(magnitude);
+                return decimal.setScale(fractionDigits, RoundingMode.HALF_EVEN).unscaledValue().longValue();
+            }
+            return (long) floor + (remainder > 0.5 ? 1 : 0);
+        }
+
+        private boolean isDigit(char c) {
+            return c >= zeroDigit && c <= zeroDigit + 9;
+        }
+
+        private static int digitCount(long value) {
+            int count = 1;
+            while (count < POWERS_OF_TEN.length && value >= POWERS_OF_TEN[count]) {
+                count++;
+            }
+            return count;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.udacity.stockhawk.utils;
+
+import java.text.DecimalFormat;
+import java.text.NumberFormat;
+import java.util.Locale;
+
+/**
+ * The number formats used to display quotes. DecimalFormat is not thread-safe
+ * and costly to build, so callers should create one per screen and reuse it
+ * rather than build one per row.
+ */
+public final class QuoteFormats {
+
+    private QuoteFormats() {
+    }
+
+    /**
+     * Currency with as many decimals as the locale's currency has, e.g. a list price.
+     */
+    public static DecimalFormat currencyFormat(Locale locale) {
+        return (DecimalFormat) NumberFormat.getCurrencyInstance(locale);
+    }
+
+    /**
+     * Currency with two decimals, e.g. a price.
+     */
+    public static DecimalFormat dollarFormat(Locale locale) {
+        DecimalFormat format = (DecimalFormat) NumberFormat.getCurrencyInstance(locale);
+        format.setMaximumFractionDigits(2);
+        format.setMinimumFractionDigits(2);
+        return format;
+    }
+
+    /**
+     * Currency with two decimals and an explicit sign on gains, e.g. a price change.
+     */
+    public static DecimalFormat dollarFormatWithPlus(Locale locale) {
+        DecimalFormat format = dollarFormat(locale);
+        format.setPositivePrefix("+");
+        return format;
+    }
+
+    /**
+     * Currency rounded to whole units, e.g. a chart axis label.
+     */
+    public static DecimalFormat wholeDollarFormat(Locale locale) {
+        DecimalFormat format = (DecimalFormat) NumberFormat.getCurrencyInstance(locale);
+        format.setMaximumFractionDigits(0);
+        return format;
+    }
+
+    /**
+     * Percentage with two decimals. Expects fractions, so divide percentages by 100.
+     */
+    public static DecimalFormat percentageFormat(Locale locale) {
+        DecimalFormat format = (DecimalFormat) NumberFormat.getPercentInstance(locale);
+        format.setMaximumFractionDigits(2);
+        format.setMinimumFractionDigits(2);
+        return format;
+    }
+}
@@ -0,0 +1,17 @@
+package com.udacity.stockhawk.utils;
+
+/**
+ * The three chart series of one stock, decoded once and shared by the detail tabs.
+ */
+public final class StockHistory {
+
+    public final HistorySeries monthly;
+    public final HistorySeries weekly;
+    public final HistorySeries daily;
+
+    public StockHistory(HistorySeries monthly, HistorySeries weekly, HistorySeries daily) {
+        this.monthly = monthly;
+        this.weekly = weekly;
+        this.daily = daily;
+    }
+}
@@ -3,20 +3,17 @@ package com.udacity.stockhawk.utils;
 import com.github.mikephil.charting.components.AxisBase;
 import com.github.mikephil.charting.formatter.IAxisValueFormatter;
 
-import java.text.DecimalFormat;
-import java.text.NumberFormat;
 import java.util.Locale;
 
 public class YAxisFormatter implements IAxisValueFormatter {
-    private final DecimalFormat dollarFormat;
+    private final PriceFormatter priceFormatter;
 
     public YAxisFormatter() {
-        dollarFormat = (DecimalFormat) NumberFormat.getCurrencyInstance(Locale.getDefault());
-        dollarFormat.setMaximumFractionDigits(0);
+        priceFormatter = PriceFormatter.getInstance(Locale.getDefault());
     }
 
     @Override
     public String getFormattedValue(float value, AxisBase axis) {
-        return String.format(dollarFormat.format(value), value);
+        return priceFormatter.formatWholePrice(value);
     }
 }
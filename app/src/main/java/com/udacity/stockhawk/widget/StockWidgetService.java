@@ -1,8 +1,8 @@
 package com.udacity.stockhawk.widget;
 
 import android.annotation.SuppressLint;
+import android.content.Context;
 import android.content.Intent;
-import android.database.Cursor;
 import android.net.Uri;
 import android.os.Binder;
 import android.widget.AdapterView;
@@ -11,9 +11,14 @@ import android.widget.RemoteViewsService;
 
 import com.udacity.stockhawk.R;
 import com.udacity.stockhawk.data.Contract;
-
-import java.text.DecimalFormat;
-import java.text.NumberFormat;
+import com.udacity.stockhawk.data.PrefUtils;
+import com.udacity.stockhawk.data.QuoteCache;
+import com.udacity.stockhawk.data.QuoteRow;
+import com.udacity.stockhawk.data.WatchlistStore;
+import com.udacity.stockhawk.utils.PriceFormatter;
+
+import java.util.Collections;
+import java.util.List;
 import java.util.Locale;
 
 public class StockWidgetService extends RemoteViewsService {
@@ -24,7 +29,8 @@ public class StockWidgetService extends RemoteViewsService {
 
     public class ListRemoteViewFactory implements RemoteViewsFactory {
 
-        private Cursor data = null;
+        private final PriceFormatter priceFormatter = PriceFormatter.getInstance(Locale.US);
+        private List<QuoteRow> data = Collections.emptyList();
 
         //Lifecycle start
         @Override
@@ -34,56 +40,42 @@ public class StockWidgetService extends RemoteViewsService {
 
         @Override
         public void onDestroy() {
-            if (data != null) {
-                data.close();
-                data = null;
-            }
-
+            data = Collections.emptyList();
         }
         //Lifecycle end
 
         @Override
         public void onDataSetChanged() {
-            if (data != null) data.close();
-
+            // Called on a binder thread, so a cold cache can be warmed synchronously.
+            // Shows the list last picked in the app, which updates the widget on a switch.
             final long identityToken = Binder.clearCallingIdentity();
-            data = getContentResolver().query(Contract.Quote.URI,
-                    Contract.Quote.QUOTE_COLUMNS.toArray(new String[]{}),
-                    null,
-                    null,
-                    Contract.Quote.COLUMN_SYMBOL);
+            Context context = StockWidgetService.this;
+            long listId = WatchlistStore.resolveList(context, PrefUtils.getSelectedList(context));
+            data = QuoteCache.get(context).getRows(WatchlistStore.getSymbols(context, listId));
             Binder.restoreCallingIdentity(identityToken);
         }
 
         @Override
         public int getCount() {
-            return data == null ? 0 : data.getCount();
+            return data.size();
         }
 
         @SuppressLint("PrivateResource")
         @Override
         public RemoteViews getViewAt(int position) {
-            if (position == AdapterView.INVALID_POSITION || data == null
-                    || !data.moveToPosition(position)) {
+            if (position == AdapterView.INVALID_POSITION || position >= data.size()) {
                 return null;
             }
 
             RemoteViews remoteViews = new RemoteViews(getPackageName(),
                     R.layout.list_item_quote);
 
-            String stockSymbol = data.getString(Contract.Quote.POSITION_SYMBOL);
-            Float stockPrice = data.getFloat(Contract.Quote.POSITION_PRICE);
-            Float absoluteChange = data.getFloat(Contract.Quote.POSITION_ABSOLUTE_CHANGE);
+            QuoteRow quote = data.get(position);
+            String stockSymbol = quote.symbol;
+            Float stockPrice = quote.price;
+            Float absoluteChange = quote.absoluteChange;
             int backgroundDrawable;
 
-            DecimalFormat dollarFormat = (DecimalFormat) NumberFormat.getCurrencyInstance(Locale.US);
-            DecimalFormat dollarFormatWithPlus = (DecimalFormat) NumberFormat.getCurrencyInstance(Locale.US);
-            dollarFormatWithPlus.setPositivePrefix("+");
-            dollarFormatWithPlus.setMaximumFractionDigits(2);
-            dollarFormat.setMaximumFractionDigits(2);
-            dollarFormat.setMinimumFractionDigits(2);
-            dollarFormatWithPlus.setMinimumFractionDigits(2);
-
             if (absoluteChange > 0) {
                 backgroundDrawable = R.drawable.percent_change_pill_green;
             } else {
@@ -91,8 +83,8 @@ public class StockWidgetService extends RemoteViewsService {
             }
 
             remoteViews.setTextViewText(R.id.symbol, stockSymbol);
-            remoteViews.setTextViewText(R.id.price, dollarFormat.format(stockPrice));
-            remoteViews.setTextViewText(R.id.change, dollarFormatWithPlus.format(absoluteChange));
+            remoteViews.setTextViewText(R.id.price, priceFormatter.formatPrice(stockPrice));
+            remoteViews.setTextViewText(R.id.change, priceFormatter.formatSignedPrice(absoluteChange));
             remoteViews.setInt(R.id.change, "setBackgroundResource", backgroundDrawable);
             remoteViews.setInt(R.id.list_item_quote, "setBackgroundResource", R.color.material_grey_850);
 
@@ -116,7 +108,7 @@ public class StockWidgetService extends RemoteViewsService {
 
         @Override
         public long getItemId(int i) {
-            return data.moveToPosition(i) ? data.getLong(Contract.Quote.POSITION_ID) : i;
+            return i < data.size() ? data.get(i).symbol.hashCode() : i;
         }
 
         @Override
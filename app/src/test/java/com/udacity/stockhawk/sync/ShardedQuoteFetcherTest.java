@@ -0,0 +1,205 @@
+package com.udacity.stockhawk.sync;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import yahoofinance.Stock;
+import yahoofinance.histquotes.HistoricalQuote;
+import yahoofinance.histquotes.Interval;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ShardedQuoteFetcherTest {
+
+    private static final long MINUTE = 60000;
+
+    private final SyncFetcher fetcher = new SyncFetcher(4, 4, MINUTE);
+    private final ShardedQuoteFetcher quoteFetcher = new ShardedQuoteFetcher();
+
+    @After
+    public void shutDown() {
+        fetcher.shutdown();
+    }
+
+    @Test
+    public void fetchesEverySymbolInShards() {
+        FakeQuoteSource source = new FakeQuoteSource(1, 1000);
+        String[] symbols = source.symbols(120);
+
+        ShardedQuoteFetcher.Result result = quoteFetcher.fetch(source, fetcher, symbols);
+
+        assertEquals(120, result.rows.size());
+        for (String symbol : symbols) {
+            assertEquals(ShardedQuoteFetcher.Outcome.OK, result.getOutcome(symbol));
+        }
+        assertEquals(3, source.getQuoteRequestCount());
+    }
+
+    @Test
+    public void fastShardsGrowTheShardSize() {
+        FakeQuoteSource source = new FakeQuoteSource(1, 1000);
+
+        quoteFetcher.fetch(source, fetcher, source.symbols(120));
+
+        assertEquals(ShardedQuoteFetcher.INITIAL_SHARD_SIZE + 3 * ShardedQuoteFetcher.SHARD_STEP,
+                quoteFetcher.getShardSize());
+    }
+
+    @Test
+    public void shardSizeStopsGrowingAtTheMaximum() {
+        FakeQuoteSource source = new FakeQuoteSource(1, 1000);
+
+        for (int i = 0; i < 20; i++) {
+            quoteFetcher.fetch(source, fetcher, source.symbols(10));
+        }
+
+        assertEquals(ShardedQuoteFetcher.MAX_SHARD_SIZE, quoteFetcher.getShardSize());
+    }
+
+    @Test
+    public void slowShardsHalveTheShardSize() {
+        FakeQuoteSource source = new FakeQuoteSource(1, 1000)
+                .withLatency(ShardedQuoteFetcher.TARGET_LATENCY_MILLIS + 100, 0);
+
+        quoteFetcher.fetch(source, fetcher, source.symbols(10));
+
+        assertEquals(ShardedQuoteFetcher.INITIAL_SHARD_SIZE / 2, quoteFetcher.getShardSize());
+    }
+
+    @Test
+    public void failedShardIsSplitAndRetried() {
+        FailingSource source = new FailingSource(1, new IOException("Server error"));
+        String[] symbols = source.fake.symbols(100);
+
+        ShardedQuoteFetcher.Result result = quoteFetcher.fetch(source, fetcher, symbols);
+
+        assertEquals(100, result.rows.size());
+        // Two shards of 50, one of which failed, halving the size, and was retried as two of 25.
+        List<Integer> sizes = source.getRequestSizes();
+        Collections.sort(sizes);
+        assertEquals(4, sizes.size());
+        assertEquals(Integer.valueOf(25), sizes.get(0));
+        assertEquals(Integer.valueOf(25), sizes.get(1));
+        assertEquals(Integer.valueOf(50), sizes.get(2));
+        assertEquals(Integer.valueOf(50), sizes.get(3));
+    }
+
+    @Test
+    public void runtimeFailuresAreRetriedLikeIoFailures() {
+        FailingSource source = new FailingSource(1, new IllegalStateException("Malformed response"));
+        String[] symbols = source.fake.symbols(10);
+
+        ShardedQuoteFetcher.Result result = quoteFetcher.fetch(source, fetcher, symbols);
+
+        assertEquals(10, result.rows.size());
+        assertEquals(2, source.getRequestSizes().size());
+    }
+
+    @Test
+    public void givesUpAfterMaxAttempts() {
+        FakeQuoteSource source = new FakeQuoteSource(1, 1000).withFailureRate(1);
+        String[] symbols = source.symbols(10);
+
+        ShardedQuoteFetcher.Result result = quoteFetcher.fetch(source, fetcher, symbols);
+
+        assertEquals(ShardedQuoteFetcher.MAX_ATTEMPTS, source.getQuoteRequestCount());
+        assertTrue(result.rows.isEmpty());
+        assertTrue(result.invalid.isEmpty());
+        for (String symbol : symbols) {
+            assertEquals(ShardedQuoteFetcher.Outcome.TRANSIENT_ERROR, result.getOutcome(symbol));
+        }
+        assertEquals(ShardedQuoteFetcher.MIN_SHARD_SIZE, quoteFetcher.getShardSize());
+    }
+
+    @Test
+    public void classifiesUnknownAndMissingSymbols() {
+        FakeQuoteSource source = new FakeQuoteSource(1, 10);
+        String known = FakeQuoteSource.symbol(0);
+        String unknown = "NOPE";
+
+        ShardedQuoteFetcher.Result result = quoteFetcher.fetch(source, fetcher, new String[]{known, unknown});
+
+        assertEquals(ShardedQuoteFetcher.Outcome.OK, result.getOutcome(known));
+        assertEquals(ShardedQuoteFetcher.Outcome.INVALID, result.getOutcome(unknown));
+
+        FakeQuoteSource dropping = new FakeQuoteSource(1, 10).withDropRate(1);
+        result = quoteFetcher.fetch(dropping, fetcher, new String[]{known});
+        assertEquals(ShardedQuoteFetcher.Outcome.TRANSIENT_ERROR, result.getOutcome(known));
+    }
+
+    @Test
+    public void unknownSymbolsAreNotRequestedAgain() {
+        FakeQuoteSource source = new FakeQuoteSource(1, 10);
+        String unknown = "NOPE";
+        quoteFetcher.fetch(source, fetcher, new String[]{unknown});
+        assertEquals(1, source.getQuoteRequestCount());
+
+        ShardedQuoteFetcher.Result result = quoteFetcher.fetch(source, fetcher,
+                new String[]{unknown, FakeQuoteSource.symbol(1)});
+
+        assertEquals(ShardedQuoteFetcher.Outcome.INVALID, result.getOutcome(unknown));
+        assertEquals(ShardedQuoteFetcher.Outcome.OK, result.getOutcome(FakeQuoteSource.symbol(1)));
+        assertEquals(2, source.getQuoteRequestCount());
+
+        quoteFetcher.fetch(source, fetcher, new String[]{unknown});
+        assertEquals(2, source.getQuoteRequestCount());
+    }
+
+    /**
+     * Fails the first {@code failures} quote requests with {@code failure}, and
+     * records the size of every quote request.
+     */
+    private static final class FailingSource implements QuoteSource {
+        final FakeQuoteSource fake = new FakeQuoteSource(1, 1000);
+        private final AtomicInteger failures;
+        private final Exception failure;
+        private final List<Integer> requestSizes = new ArrayList<>();
+
+        FailingSource(int failures, Exception failure) {
+            this.failures = new AtomicInteger(failures);
+            this.failure = failure;
+        }
+
+        synchronized List<Integer> getRequestSizes() {
+            return new ArrayList<>(requestSizes);
+        }
+
+        @Override
+        public Map<String, Stock> getQuotes(String[] symbols) throws IOException {
+            synchronized (this) {
+                requestSizes.add(symbols.length);
+            }
+            if (failures.getAndDecrement() > 0) {
+                if (failure instanceof IOException) {
+                    throw (IOException) failure;
+                }
+                throw (RuntimeException) failure;
+            }
+            return fake.getQuotes(symbols);
+        }
+
+        @Override
+        public List<HistoricalQuote> getHistory(String symbol, java.util.Calendar from, java.util.Calendar to,
+                                                Interval interval) throws IOException {
+            return fake.getHistory(symbol, from, to, interval);
+        }
+
+        @Override
+        public String getQuoteHost() {
+            return fake.getQuoteHost();
+        }
+
+        @Override
+        public String getHistoryHost() {
+            return fake.getHistoryHost();
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package com.udacity.stockhawk.sync;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SyncPipelineTest {
+
+    private static final String HOST = "query1.finance.yahoo.com";
+    private static final long MINUTE = 60000;
+
+    private SyncFetcher fetcher;
+
+    @After
+    public void shutDown() {
+        if (fetcher != null) {
+            fetcher.shutdown();
+        }
+    }
+
+    @Test
+    public void flushesFullBatches() {
+        fetcher = new SyncFetcher(4, 4, MINUTE);
+        RecordingSink sink = new RecordingSink();
+
+        new SyncPipeline<Integer>(fetcher, HOST, 3, MINUTE, 6).run(immediate(9).iterator(), sink);
+
+        assertEquals(3, sink.batches.size());
+        for (List<Integer> batch : sink.batches) {
+            assertEquals(3, batch.size());
+        }
+        assertEquals(range(9), sink.results());
+    }
+
+    @Test
+    public void flushesTheLastPartialBatch() {
+        fetcher = new SyncFetcher(4, 4, MINUTE);
+        RecordingSink sink = new RecordingSink();
+
+        new SyncPipeline<Integer>(fetcher, HOST, 4, MINUTE, 8).run(immediate(6).iterator(), sink);
+
+        assertEquals(2, sink.batches.size());
+        assertEquals(range(6), sink.results());
+    }
+
+    @Test
+    public void flushesBatchesByAge() throws InterruptedException {
+        fetcher = new SyncFetcher(4, 4, MINUTE);
+        final CountDownLatch firstPersisted = new CountDownLatch(1);
+        RecordingSink sink = new RecordingSink() {
+            @Override
+            public void persist(List<Integer> batch) {
+                super.persist(batch);
+                firstPersisted.countDown();
+            }
+        };
+        List<Callable<Integer>> tasks = new ArrayList<>();
+        tasks.add(result(0));
+        tasks.add(new Callable<Integer>() {
+            @Override
+            public Integer call() throws Exception {
+                // Only finishes once the first result went out on its own.
+                assertTrue(firstPersisted.await(10, TimeUnit.SECONDS));
+                return 1;
+            }
+        });
+
+        new SyncPipeline<Integer>(fetcher, HOST, 100, 50, 4).run(tasks.iterator(), sink);
+
+        assertEquals(2, sink.batches.size());
+        assertEquals(Collections.singletonList(0), sink.batches.get(0));
+        assertEquals(Collections.singletonList(1), sink.batches.get(1));
+    }
+
+    @Test
+    public void failedTasksAreSkipped() {
+        fetcher = new SyncFetcher(4, 4, MINUTE);
+        RecordingSink sink = new RecordingSink();
+        List<Callable<Integer>> tasks = new ArrayList<>(immediate(3));
+        tasks.add(new Callable<Integer>() {
+            @Override
+            public Integer call() throws Exception {
+                throw new IOException("Server error");
+            }
+        });
+
+        new SyncPipeline<Integer>(fetcher, HOST, 10, MINUTE, 4).run(tasks.iterator(), sink);
+
+        assertEquals(range(3), sink.results());
+        assertEquals(1, sink.skipped.size());
+        assertTrue(sink.skipped.get(0) instanceof IOException);
+    }
+
+    @Test(timeout = 10000)
+    public void stopsAtTheDeadlineAndCancelsInFlightTasks() throws InterruptedException {
+        fetcher = new SyncFetcher(4, 4, 300);
+        RecordingSink sink = new RecordingSink();
+        final CountDownLatch interrupted = new CountDownLatch(1);
+        final AtomicInteger started = new AtomicInteger();
+        List<Callable<Integer>> tasks = new ArrayList<>();
+        tasks.add(result(0));
+        for (int i = 0; i < 3; i++) {
+            tasks.add(new Callable<Integer>() {
+                @Override
+                public Integer call() throws Exception {
+                    started.incrementAndGet();
+                    try {
+                        Thread.sleep(MINUTE);
+                    } catch (InterruptedException exception) {
+                        interrupted.countDown();
+                        throw exception;
+                    }
+                    return -1;
+                }
+            });
+        }
+
+        long start = System.nanoTime();
+        new SyncPipeline<Integer>(fetcher, HOST, 10, MINUTE, 4).run(tasks.iterator(), sink);
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertTrue("Returned after " + elapsedMillis + " ms", elapsedMillis < 5000);
+        assertEquals(Collections.singleton(0), sink.results());
+        assertEquals(3, started.get());
+        assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test(timeout = 30000)
+    public void boundsTasksInFlight() {
+        fetcher = new SyncFetcher(8, 8, MINUTE);
+        RecordingSink sink = new RecordingSink();
+        final int maxInFlight = 3;
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger mostRunning = new AtomicInteger();
+        List<Callable<Integer>> tasks = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            final int value = i;
+            tasks.add(new Callable<Integer>() {
+                @Override
+                public Integer call() throws Exception {
+                    int now = running.incrementAndGet();
+                    int most;
+                    while (now > (most = mostRunning.get()) && !mostRunning.compareAndSet(most, now)) {
+                        // retry
+                    }
+                    // Finishing together fills the completion queue to its capacity.
+                    Thread.sleep(value % 2);
+                    running.decrementAndGet();
+                    return value;
+                }
+            });
+        }
+
+        new SyncPipeline<Integer>(fetcher, HOST, 7, MINUTE, maxInFlight).run(tasks.iterator(), sink);
+
+        assertTrue("Ran " + mostRunning.get() + " tasks at once", mostRunning.get() <= maxInFlight);
+        // A completion the queue had no room for would be lost, and the run would
+        // stall until the deadline with results missing.
+        assertEquals(range(200), sink.results());
+        assertTrue(sink.skipped.isEmpty());
+    }
+
+    private static Callable<Integer> result(final int value) {
+        return new Callable<Integer>() {
+            @Override
+            public Integer call() {
+                return value;
+            }
+        };
+    }
+
+    private static List<Callable<Integer>> immediate(int count) {
+        List<Callable<Integer>> tasks = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            tasks.add(result(i));
+        }
+        return tasks;
+    }
+
+    private static Set<Integer> range(int count) {
+        Set<Integer> values = new HashSet<>();
+        for (int i = 0; i < count; i++) {
+            values.add(i);
+        }
+        return values;
+    }
+
+    private static class RecordingSink implements SyncPipeline.Sink<Integer> {
+        final List<List<Integer>> batches = new ArrayList<>();
+        final List<Exception> skipped = new ArrayList<>();
+
+        @Override
+        public void persist(List<Integer> batch) {
+            batches.add(new ArrayList<>(batch));
+        }
+
+        @Override
+        public void skipped(Exception exception) {
+            skipped.add(exception);
+        }
+
+        Set<Integer> results() {
+            Set<Integer> results = new HashSet<>();
+            for (List<Integer> batch : batches) {
+                results.addAll(batch);
+            }
+            return results;
+        }
+    }
+}
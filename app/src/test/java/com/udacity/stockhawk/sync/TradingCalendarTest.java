@@ -0,0 +1,194 @@
+package com.udacity.stockhawk.sync;
+
+import org.junit.Test;
+
+import java.util.Calendar;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TradingCalendarTest {
+
+    private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+
+    private final TradingCalendar calendar = new TradingCalendar();
+
+    @Test
+    public void goodFridayIsAHoliday() {
+        assertFalse(calendar.isTradingDay(newYork(2024, Calendar.MARCH, 29, 12, 0)));
+        assertFalse(calendar.isTradingDay(newYork(2025, Calendar.APRIL, 18, 12, 0)));
+        // Easter on April 1st puts Good Friday in March.
+        assertFalse(calendar.isTradingDay(newYork(2018, Calendar.MARCH, 30, 12, 0)));
+        assertTrue(calendar.isTradingDay(newYork(2024, Calendar.APRIL, 1, 12, 0)));
+    }
+
+    @Test
+    public void floatingHolidays() {
+        assertFalse(calendar.isTradingDay(newYork(2024, Calendar.JANUARY, 15, 12, 0)));
+        assertFalse(calendar.isTradingDay(newYork(2024, Calendar.FEBRUARY, 19, 12, 0)));
+        assertFalse(calendar.isTradingDay(newYork(2024, Calendar.MAY, 27, 12, 0)));
+        assertFalse(calendar.isTradingDay(newYork(2024, Calendar.SEPTEMBER, 2, 12, 0)));
+        assertFalse(calendar.isTradingDay(newYork(2024, Calendar.NOVEMBER, 28, 12, 0)));
+        assertTrue(calendar.isTradingDay(newYork(2024, Calendar.MAY, 20, 12, 0)));
+        assertTrue(calendar.isTradingDay(newYork(2024, Calendar.NOVEMBER, 21, 12, 0)));
+    }
+
+    @Test
+    public void saturdayHolidayIsObservedOnFriday() {
+        assertFalse(calendar.isTradingDay(newYork(2020, Calendar.JULY, 3, 12, 0)));
+        assertFalse(calendar.isTradingDay(newYork(2021, Calendar.DECEMBER, 24, 12, 0)));
+    }
+
+    @Test
+    public void sundayHolidayIsObservedOnMonday() {
+        assertFalse(calendar.isTradingDay(newYork(2022, Calendar.DECEMBER, 26, 12, 0)));
+        assertFalse(calendar.isTradingDay(newYork(2021, Calendar.JULY, 5, 12, 0)));
+    }
+
+    @Test
+    public void newYearsDayOnASaturdayIsNotObserved() {
+        assertTrue(calendar.isTradingDay(newYork(2021, Calendar.DECEMBER, 31, 12, 0)));
+        assertTrue(calendar.isTradingDay(newYork(2022, Calendar.JANUARY, 3, 12, 0)));
+    }
+
+    @Test
+    public void juneteenthFrom2022() {
+        assertTrue(calendar.isTradingDay(newYork(2021, Calendar.JUNE, 18, 12, 0)));
+        // Sunday in 2022, observed on the Monday.
+        assertFalse(calendar.isTradingDay(newYork(2022, Calendar.JUNE, 20, 12, 0)));
+        assertFalse(calendar.isTradingDay(newYork(2023, Calendar.JUNE, 19, 12, 0)));
+    }
+
+    @Test
+    public void weekdaysCalendarHasNoHolidays() {
+        TradingCalendar weekdays = TradingCalendar.weekdays(TradingCalendar.NEW_YORK, 9 * 60 + 30, 16 * 60);
+        assertTrue(weekdays.isTradingDay(newYork(2024, Calendar.MARCH, 29, 12, 0)));
+        assertFalse(weekdays.isTradingDay(newYork(2024, Calendar.MARCH, 30, 12, 0)));
+    }
+
+    @Test
+    public void sessionWindowSpansALongWeekend() {
+        // Tuesday after Labor Day: the Monday and the weekend hold no sessions.
+        Calendar to = newYork(2024, Calendar.SEPTEMBER, 3, 10, 0);
+        assertEquals(newYork(2024, Calendar.AUGUST, 30, 0, 0).getTimeInMillis(),
+                calendar.getSessionWindowStart(to, 1).getTimeInMillis());
+        assertEquals(newYork(2024, Calendar.AUGUST, 29, 0, 0).getTimeInMillis(),
+                calendar.getSessionWindowStart(to, 2).getTimeInMillis());
+    }
+
+    @Test
+    public void sessionWindowExcludesTheDayOfTo() {
+        Calendar to = newYork(2024, Calendar.SEPTEMBER, 5, 17, 0);
+        assertEquals(newYork(2024, Calendar.SEPTEMBER, 4, 0, 0).getTimeInMillis(),
+                calendar.getSessionWindowStart(to, 1).getTimeInMillis());
+    }
+
+    @Test
+    public void sessionDateIsTheBarDateInNewYork() {
+        TimeZone deviceZone = TimeZone.getDefault();
+        try {
+            // East of New York, midnight on the device is still the day before there.
+            TimeZone.setDefault(TimeZone.getTimeZone("Asia/Tokyo"));
+            Calendar bar = Calendar.getInstance();
+            bar.clear();
+            bar.set(2024, Calendar.SEPTEMBER, 4);
+
+            Calendar date = calendar.getSessionDate(bar.getTimeInMillis());
+
+            assertEquals(newYork(2024, Calendar.SEPTEMBER, 4, 0, 0).getTimeInMillis(), date.getTimeInMillis());
+            // The stored bar is the newest complete session, so no new daily bar is due.
+            Calendar to = newYork(2024, Calendar.SEPTEMBER, 5, 17, 0);
+            assertFalse(calendar.getSessionWindowStart(to, 1).after(date));
+        } finally {
+            TimeZone.setDefault(deviceZone);
+        }
+    }
+
+    @Test
+    public void isOpenDuringTheRegularSession() {
+        assertFalse(calendar.isOpen(newYork(2024, Calendar.JUNE, 3, 9, 29)));
+        assertTrue(calendar.isOpen(newYork(2024, Calendar.JUNE, 3, 9, 30)));
+        assertTrue(calendar.isOpen(newYork(2024, Calendar.JUNE, 3, 15, 59)));
+        assertFalse(calendar.isOpen(newYork(2024, Calendar.JUNE, 3, 16, 0)));
+        assertFalse(calendar.isOpen(newYork(2024, Calendar.JUNE, 1, 12, 0)));
+        assertFalse(calendar.isOpen(newYork(2024, Calendar.MAY, 27, 12, 0)));
+    }
+
+    @Test
+    public void isOpenFollowsNewYorkAcrossDaylightSavingTime() {
+        // 9:30 is 14:30 UTC in winter and 13:30 UTC in summer.
+        assertFalse(calendar.isOpen(utc(2024, Calendar.MARCH, 8, 14, 29)));
+        assertTrue(calendar.isOpen(utc(2024, Calendar.MARCH, 8, 14, 30)));
+        assertFalse(calendar.isOpen(utc(2024, Calendar.MARCH, 11, 13, 29)));
+        assertTrue(calendar.isOpen(utc(2024, Calendar.MARCH, 11, 13, 30)));
+        assertTrue(calendar.isOpen(utc(2024, Calendar.NOVEMBER, 1, 19, 59)));
+        assertFalse(calendar.isOpen(utc(2024, Calendar.NOVEMBER, 1, 20, 0)));
+        assertTrue(calendar.isOpen(utc(2024, Calendar.NOVEMBER, 4, 20, 59)));
+        assertFalse(calendar.isOpen(utc(2024, Calendar.NOVEMBER, 4, 21, 0)));
+    }
+
+    @Test
+    public void nextOpen() {
+        assertEquals(newYork(2024, Calendar.JUNE, 3, 9, 30).getTimeInMillis(),
+                calendar.getNextOpen(newYork(2024, Calendar.JUNE, 3, 7, 0)).getTimeInMillis());
+        // At the open, the next one is the following day's.
+        assertEquals(newYork(2024, Calendar.JUNE, 4, 9, 30).getTimeInMillis(),
+                calendar.getNextOpen(newYork(2024, Calendar.JUNE, 3, 9, 30)).getTimeInMillis());
+        // Thursday before Good Friday opens next on the Monday.
+        assertEquals(newYork(2024, Calendar.APRIL, 1, 9, 30).getTimeInMillis(),
+                calendar.getNextOpen(newYork(2024, Calendar.MARCH, 28, 16, 30)).getTimeInMillis());
+    }
+
+    @Test
+    public void nextOpenAcrossDaylightSavingTime() {
+        // Clocks go forward on Sunday 10 March 2024 and back on Sunday 3 November 2024.
+        assertEquals(utc(2024, Calendar.MARCH, 11, 13, 30).getTimeInMillis(),
+                calendar.getNextOpen(newYork(2024, Calendar.MARCH, 8, 17, 0)).getTimeInMillis());
+        assertEquals(utc(2024, Calendar.MARCH, 11, 13, 30).getTimeInMillis(),
+                calendar.getNextOpen(newYork(2024, Calendar.MARCH, 10, 3, 0)).getTimeInMillis());
+        assertEquals(utc(2024, Calendar.NOVEMBER, 4, 14, 30).getTimeInMillis(),
+                calendar.getNextOpen(newYork(2024, Calendar.NOVEMBER, 1, 17, 0)).getTimeInMillis());
+        assertEquals(utc(2024, Calendar.NOVEMBER, 4, 14, 30).getTimeInMillis(),
+                calendar.getNextOpen(newYork(2024, Calendar.NOVEMBER, 3, 1, 30)).getTimeInMillis());
+    }
+
+    @Test
+    public void previousClose() {
+        assertEquals(newYork(2024, Calendar.JUNE, 3, 16, 0).getTimeInMillis(),
+                calendar.getPreviousClose(newYork(2024, Calendar.JUNE, 3, 16, 0)).getTimeInMillis());
+        assertEquals(newYork(2024, Calendar.MAY, 31, 16, 0).getTimeInMillis(),
+                calendar.getPreviousClose(newYork(2024, Calendar.JUNE, 3, 15, 59)).getTimeInMillis());
+        // Tuesday after Memorial Day, before the open.
+        assertEquals(newYork(2024, Calendar.MAY, 24, 16, 0).getTimeInMillis(),
+                calendar.getPreviousClose(newYork(2024, Calendar.MAY, 28, 8, 0)).getTimeInMillis());
+    }
+
+    @Test
+    public void previousCloseAcrossDaylightSavingTime() {
+        assertEquals(utc(2024, Calendar.MARCH, 8, 21, 0).getTimeInMillis(),
+                calendar.getPreviousClose(newYork(2024, Calendar.MARCH, 11, 8, 0)).getTimeInMillis());
+        assertEquals(utc(2024, Calendar.MARCH, 8, 21, 0).getTimeInMillis(),
+                calendar.getPreviousClose(newYork(2024, Calendar.MARCH, 10, 12, 0)).getTimeInMillis());
+        assertEquals(utc(2024, Calendar.NOVEMBER, 1, 20, 0).getTimeInMillis(),
+                calendar.getPreviousClose(newYork(2024, Calendar.NOVEMBER, 4, 8, 0)).getTimeInMillis());
+        assertEquals(utc(2024, Calendar.NOVEMBER, 1, 20, 0).getTimeInMillis(),
+                calendar.getPreviousClose(newYork(2024, Calendar.NOVEMBER, 3, 12, 0)).getTimeInMillis());
+    }
+
+    private static Calendar newYork(int year, int month, int dayOfMonth, int hour, int minute) {
+        return at(TradingCalendar.NEW_YORK, year, month, dayOfMonth, hour, minute);
+    }
+
+    private static Calendar utc(int year, int month, int dayOfMonth, int hour, int minute) {
+        return at(UTC, year, month, dayOfMonth, hour, minute);
+    }
+
+    private static Calendar at(TimeZone zone, int year, int month, int dayOfMonth, int hour, int minute) {
+        Calendar calendar = Calendar.getInstance(zone);
+        calendar.clear();
+        calendar.set(year, month, dayOfMonth, hour, minute);
+        return calendar;
+    }
+}
@@ -0,0 +1,54 @@
+package com.udacity.stockhawk.sync;
+
+import org.junit.Test;
+
+import java.util.Calendar;
+
+import yahoofinance.YahooFinance;
+import yahoofinance.histquotes.Interval;
+
+import static org.junit.Assert.assertEquals;
+
+public class YahooQuoteSourceTest {
+
+    private static final String CLOSED = "max-stale=" + YahooQuoteSource.CLOSED_HISTORY_MAX_STALE;
+    private static final String OPEN = "max-stale=" + YahooQuoteSource.OPEN_HISTORY_MAX_STALE;
+
+    @Test
+    public void closedWindowsAcceptAnyCachedResponse() {
+        long now = System.currentTimeMillis();
+
+        assertEquals(CLOSED, YahooQuoteSource.cacheControl(exchangeDaysAgo(1, now), Interval.DAILY, now));
+        assertEquals(CLOSED, YahooQuoteSource.cacheControl(exchangeDaysAgo(7, now), Interval.WEEKLY, now));
+        assertEquals(CLOSED, YahooQuoteSource.cacheControl(exchangeDaysAgo(40, now), Interval.MONTHLY, now));
+    }
+
+    @Test
+    public void windowsWithAnOpenBarAcceptOnlyRecentResponses() {
+        long now = System.currentTimeMillis();
+
+        assertEquals(OPEN, YahooQuoteSource.cacheControl(exchangeDaysAgo(0, now), Interval.DAILY, now));
+        assertEquals(OPEN, YahooQuoteSource.cacheControl(exchangeDaysAgo(3, now), Interval.WEEKLY, now));
+        assertEquals(OPEN, YahooQuoteSource.cacheControl(exchangeDaysAgo(10, now), Interval.MONTHLY, now));
+    }
+
+    @Test
+    public void historyUrlMatchesTheClientRequest() {
+        Calendar from = Calendar.getInstance();
+        from.clear();
+        from.set(2017, Calendar.JANUARY, 3);
+        Calendar to = Calendar.getInstance();
+        to.clear();
+        to.set(2017, Calendar.FEBRUARY, 28);
+
+        assertEquals(YahooFinance.HISTQUOTES_BASE_URL + "?s=AAPL&a=0&b=3&c=2017&d=1&e=28&f=2017&g=d&ignore=.csv",
+                YahooQuoteSource.historyUrl("AAPL", from, to, Interval.DAILY));
+    }
+
+    private static Calendar exchangeDaysAgo(int days, long now) {
+        Calendar calendar = Calendar.getInstance(TradingCalendar.NEW_YORK);
+        calendar.setTimeInMillis(now);
+        calendar.add(Calendar.DAY_OF_YEAR, -days);
+        return calendar;
+    }
+}
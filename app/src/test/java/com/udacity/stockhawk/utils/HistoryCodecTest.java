@@ -0,0 +1,138 @@
+package com.udacity.stockhawk.utils;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class HistoryCodecTest {
+
+    private static final long[] TIMES = {1262304000000L, 1262908800000L, 1263513600000L, 1264118400000L};
+    private static final long[] CLOSES = {1234567, 1200000, 1299999, 5};
+
+    @Test
+    public void roundTrip() {
+        byte[] encoded = HistoryCodec.encode(TIMES, CLOSES, TIMES.length);
+
+        assertEquals(TIMES.length, HistoryCodec.size(encoded));
+        HistorySeries series = HistoryCodec.decode(encoded);
+        assertEquals(TIMES.length, series.size);
+        assertArrayEquals(TIMES, times(series));
+        assertArrayEquals(new float[]{123.4567f, 120f, 129.9999f, 0.0005f}, closes(series), 0f);
+    }
+
+    @Test
+    public void fixedPointRoundTripIsExact() {
+        byte[] encoded = HistoryCodec.encode(TIMES, CLOSES, TIMES.length);
+        long[] times = new long[TIMES.length];
+        long[] closes = new long[CLOSES.length];
+
+        assertEquals(TIMES.length, HistoryCodec.decodeFixedPointInto(encoded, times, closes));
+        assertArrayEquals(TIMES, times);
+        assertArrayEquals(CLOSES, closes);
+    }
+
+    @Test
+    public void onlyCountPointsAreEncoded() {
+        byte[] encoded = HistoryCodec.encode(TIMES, CLOSES, 2);
+
+        HistorySeries series = HistoryCodec.decode(encoded);
+        assertArrayEquals(new long[]{TIMES[0], TIMES[1]}, times(series));
+    }
+
+    @Test
+    public void emptySeries() {
+        byte[] encoded = HistoryCodec.encode(new long[0], new long[0], 0);
+
+        assertEquals(0, HistoryCodec.size(encoded));
+        assertEquals(0, HistoryCodec.decode(encoded).size);
+        assertEquals(0, HistoryCodec.decodeInto(encoded, new long[0], new float[0]));
+        assertEquals(0, HistoryCodec.size(null));
+        assertEquals(0, HistoryCodec.decode(new byte[0]).size);
+    }
+
+    @Test
+    public void decodeIntoReusesTheBuffers() {
+        long[] times = new long[8];
+        float[] closes = new float[8];
+
+        assertEquals(4, HistoryCodec.decodeInto(HistoryCodec.encode(TIMES, CLOSES, 4), times, closes));
+        assertEquals(TIMES[3], times[3]);
+        assertEquals(0.0005f, closes[3], 0f);
+
+        long[] shorterTimes = {10, 20};
+        long[] shorterCloses = {30000, 40000};
+        assertEquals(2, HistoryCodec.decodeInto(HistoryCodec.encode(shorterTimes, shorterCloses, 2),
+                times, closes));
+        assertEquals(10, times[0]);
+        assertEquals(20, times[1]);
+        assertEquals(3f, closes[0], 0f);
+        assertEquals(4f, closes[1], 0f);
+        // Points past the count are left as they were.
+        assertEquals(TIMES[2], times[2]);
+        assertEquals(129.9999f, closes[2], 0f);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void decodeIntoRejectsSmallBuffers() {
+        HistoryCodec.decodeInto(HistoryCodec.encode(TIMES, CLOSES, 4), new long[4], new float[3]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownVersionIsRejected() {
+        byte[] encoded = HistoryCodec.encode(TIMES, CLOSES, 4);
+        encoded[0] = 2;
+        HistoryCodec.decode(encoded);
+    }
+
+    @Test
+    public void legacyStringIsReadOldestFirst() {
+        HistorySeries series = HistoryCodec.decode(
+                HistoryCodec.fromLegacyString("3000:12.5$2000:11.25$1000:10$"));
+
+        assertEquals(3, series.size);
+        assertArrayEquals(new long[]{1000, 2000, 3000}, times(series));
+        assertArrayEquals(new float[]{10f, 11.25f, 12.5f}, closes(series), 0f);
+    }
+
+    @Test
+    public void legacyPairsWithoutACloseAreSkipped() {
+        HistorySeries series = HistoryCodec.decode(
+                HistoryCodec.fromLegacyString("3000:12.5$2000:null$1000:10$"));
+
+        assertArrayEquals(new long[]{1000, 3000}, times(series));
+        assertArrayEquals(new float[]{10f, 12.5f}, closes(series), 0f);
+    }
+
+    @Test
+    public void malformedLegacyPairsAreSkipped() {
+        HistorySeries series = HistoryCodec.decode(
+                HistoryCodec.fromLegacyString("null:1$3000:$:5$2000:abc$1000:10$"));
+
+        assertArrayEquals(new long[]{1000}, times(series));
+        assertArrayEquals(new float[]{10f}, closes(series), 0f);
+    }
+
+    @Test
+    public void emptyLegacyStringIsAnEmptySeries() {
+        assertEquals(0, HistoryCodec.decode(HistoryCodec.fromLegacyString(null)).size);
+        assertEquals(0, HistoryCodec.decode(HistoryCodec.fromLegacyString("")).size);
+        assertEquals(0, HistoryCodec.decode(HistoryCodec.fromLegacyString("1000:null$")).size);
+    }
+
+    private static long[] times(HistorySeries series) {
+        long[] times = new long[series.size];
+        for (int i = 0; i < times.length; i++) {
+            times[i] = series.times[i];
+        }
+        return times;
+    }
+
+    private static float[] closes(HistorySeries series) {
+        float[] closes = new float[series.size];
+        for (int i = 0; i < closes.length; i++) {
+            closes[i] = series.closes[i];
+        }
+        return closes;
+    }
+}
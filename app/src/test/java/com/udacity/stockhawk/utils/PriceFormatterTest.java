@@ -0,0 +1,139 @@
+package com.udacity.stockhawk.utils;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.text.DecimalFormat;
+import java.text.FieldPosition;
+import java.util.Locale;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PriceFormatterTest {
+
+    private static final Locale[] LOCALES = {
+            Locale.US, Locale.UK, Locale.GERMANY, Locale.FRANCE, Locale.JAPAN, Locale.ITALY,
+            new Locale("de", "CH"), new Locale("hi", "IN"), new Locale("ar", "EG"), new Locale("pt", "BR")
+    };
+
+    private static final double[] VALUES = {
+            0, -0.0, 0.001, 0.004, 0.005, 0.015, 0.025, 0.125, 0.5, 1.005, 2.5, 9.995, 12.345, 99.999,
+            1234.5, 1234567.891, 987654321.125, 1e14, 1e16, Double.MAX_VALUE, Double.MIN_VALUE,
+            Double.NaN, Double.POSITIVE_INFINITY
+    };
+
+    @Test
+    public void matchesDecimalFormat() {
+        for (Locale locale : LOCALES) {
+            PriceFormatter formatter = PriceFormatter.getInstance(locale);
+            for (double value : VALUES) {
+                for (double signed : new double[]{value, -value}) {
+                    assertFormats(QuoteFormats.currencyFormat(locale), formatter,
+                            PriceFormatter.Style.CURRENCY, signed);
+                    assertFormats(QuoteFormats.dollarFormat(locale), formatter, PriceFormatter.Style.PRICE, signed);
+                    assertFormats(QuoteFormats.dollarFormatWithPlus(locale), formatter,
+                            PriceFormatter.Style.SIGNED_PRICE, signed);
+                    assertFormats(QuoteFormats.percentageFormat(locale), formatter,
+                            PriceFormatter.Style.PERCENTAGE, signed / 100);
+                    assertFormats(QuoteFormats.wholeDollarFormat(locale), formatter,
+                            PriceFormatter.Style.WHOLE_PRICE, signed);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void usFormatsAreFixedPoint() {
+        PriceFormatter formatter = PriceFormatter.getInstance(Locale.US);
+
+        for (PriceFormatter.Style style : PriceFormatter.Style.values()) {
+            assertTrue(style.name(), formatter.isFixedPoint(style));
+        }
+        assertEquals("$0.01", formatter.formatPrice(0.015));
+        assertEquals("$9.99", formatter.formatPrice(9.995));
+    }
+
+    @Test
+    public void currencyKeepsTheDigitsOfTheCurrency() {
+        assertEquals("$1,234.50", PriceFormatter.getInstance(Locale.US).formatCurrency(1234.5));
+        String yen = PriceFormatter.getInstance(Locale.JAPAN).formatCurrency(1234.5);
+        assertEquals(QuoteFormats.currencyFormat(Locale.JAPAN).format(1234.5), yen);
+        assertTrue(yen, yen.endsWith("1,234"));
+    }
+
+    @Test
+    public void followsFormatsThatRoundTiesOnTheShortestDecimal() {
+        Locale locale = Locale.US;
+        DecimalFormat currency = roundingShortest(QuoteFormats.currencyFormat(locale));
+        DecimalFormat price = roundingShortest(QuoteFormats.dollarFormat(locale));
+        DecimalFormat signedPrice = roundingShortest(QuoteFormats.dollarFormatWithPlus(locale));
+        DecimalFormat percentage = roundingShortest(QuoteFormats.percentageFormat(locale));
+        DecimalFormat wholePrice = roundingShortest(QuoteFormats.wholeDollarFormat(locale));
+        PriceFormatter formatter = new PriceFormatter(currency, price, signedPrice, percentage, wholePrice);
+
+        for (PriceFormatter.Style style : PriceFormatter.Style.values()) {
+            assertTrue(style.name(), formatter.isFixedPoint(style));
+        }
+        assertEquals("$0.02", formatter.formatPrice(0.015));
+        assertEquals("$10.00", formatter.formatPrice(9.995));
+        assertEquals("0.02%", formatter.formatPercentage(0.00015));
+        for (double value : VALUES) {
+            for (double signed : new double[]{value, -value}) {
+                assertFormats(currency, formatter, PriceFormatter.Style.CURRENCY, signed);
+                assertFormats(price, formatter, PriceFormatter.Style.PRICE, signed);
+                assertFormats(signedPrice, formatter, PriceFormatter.Style.SIGNED_PRICE, signed);
+                assertFormats(percentage, formatter, PriceFormatter.Style.PERCENTAGE, signed / 100);
+                assertFormats(wholePrice, formatter, PriceFormatter.Style.WHOLE_PRICE, signed);
+            }
+        }
+    }
+
+    @Test
+    public void appendsToTheGivenBuffer() {
+        PriceFormatter formatter = PriceFormatter.getInstance(Locale.US);
+        StringBuilder out = new StringBuilder("Price: ");
+
+        formatter.append(out, PriceFormatter.Style.SIGNED_PRICE, 1234.5);
+
+        assertEquals("Price: +1,234.50", out.toString());
+    }
+
+    private static void assertFormats(DecimalFormat format, PriceFormatter formatter,
+                                      PriceFormatter.Style style, double value) {
+        assertEquals(style + " " + value, format.format(value), formatter.format(style, value));
+    }
+
+    /**
+     * @return a copy of {@code format} that rounds the shortest decimal form of a
+     * value, as ICU does on Android, rather than its exact binary value.
+     */
+    private static DecimalFormat roundingShortest(DecimalFormat format) {
+        final int scale = format.getMaximumFractionDigits() + String.valueOf(format.getMultiplier()).length() - 1;
+        DecimalFormat copy = new DecimalFormat(format.toPattern(), format.getDecimalFormatSymbols()) {
+            @Override
+            public StringBuffer format(double number, StringBuffer result, FieldPosition position) {
+                if (Double.isNaN(number) || Double.isInfinite(number)) {
+                    return super.format(number, result, position);
+                }
+                BigDecimal rounded = BigDecimal.valueOf(number).setScale(scale, RoundingMode.HALF_EVEN);
+                if (rounded.signum() == 0) {
+                    return super.format(number < 0 || 1 / number < 0 ? -0.0 : 0.0, result, position);
+                }
+                return super.format(rounded, result, position);
+            }
+        };
+        // Already rounded; any mode but half-even also keeps the JDK's fast path,
+        // which bypasses this override, out of the way.
+        copy.setRoundingMode(RoundingMode.HALF_UP);
+        copy.setPositivePrefix(format.getPositivePrefix());
+        copy.setPositiveSuffix(format.getPositiveSuffix());
+        copy.setNegativePrefix(format.getNegativePrefix());
+        copy.setNegativeSuffix(format.getNegativeSuffix());
+        copy.setMultiplier(format.getMultiplier());
+        copy.setMinimumFractionDigits(format.getMinimumFractionDigits());
+        copy.setMaximumFractionDigits(format.getMaximumFractionDigits());
+        return copy;
+    }
+}
@@ -0,0 +1,83 @@
+package com.udacity.stockhawk.benchmark;
+
+import com.udacity.stockhawk.utils.HistoryCodec;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encoding every chart series of a watchlist, as the sync does, and decoding
+ * them, as the detail screen does. Run with the gc profiler to see allocations
+ * per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class HistoryCodecBenchmark {
+
+    private static final int SERIES_PER_SYMBOL = 3;
+
+    @Param({"10", "100", "1000", "5000"})
+    public int watchlistSize;
+
+    @Param({"5", "60"})
+    public int barCount;
+
+    private long[] times;
+    private long[][] closes;
+    private byte[][] encoded;
+    private long[] timeBuffer;
+    private float[] closeBuffer;
+
+    @Setup
+    public void setUp() {
+        int seriesCount = watchlistSize * SERIES_PER_SYMBOL;
+        Random random = Watchlists.random();
+        times = Watchlists.times(barCount);
+        closes = new long[seriesCount][];
+        encoded = new byte[seriesCount][];
+        for (int i = 0; i < seriesCount; i++) {
+            closes[i] = Watchlists.closes(barCount, random);
+            encoded[i] = HistoryCodec.encode(times, closes[i], barCount);
+        }
+        timeBuffer = new long[barCount];
+        closeBuffer = new float[barCount];
+    }
+
+    @Benchmark
+    public void encode(Blackhole blackhole) {
+        for (long[] series : closes) {
+            blackhole.consume(HistoryCodec.encode(times, series, barCount));
+        }
+    }
+
+    @Benchmark
+    public void decode(Blackhole blackhole) {
+        for (byte[] series : encoded) {
+            blackhole.consume(HistoryCodec.decode(series));
+        }
+    }
+
+    /**
+     * Decoding into buffers kept between calls; should allocate nothing.
+     */
+    @Benchmark
+    public float decodeIntoReusedBuffers() {
+        float sum = 0;
+        for (byte[] series : encoded) {
+            int count = HistoryCodec.decodeInto(series, timeBuffer, closeBuffer);
+            sum += closeBuffer[count - 1];
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,116 @@
+package com.udacity.stockhawk.benchmark;
+
+import com.udacity.stockhawk.data.QuoteRow;
+import com.udacity.stockhawk.sync.QuoteMapper;
+import com.udacity.stockhawk.utils.PriceFormatter;
+import com.udacity.stockhawk.utils.QuoteFormats;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import yahoofinance.Stock;
+
+/**
+ * Formatting the price and change of every row of a watchlist, as the list and
+ * the widget do on each refresh. Setup checks that {@link PriceFormatter}
+ * matches DecimalFormat on every row before its run is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class QuoteFormatBenchmark {
+
+    @Param({"10", "100", "1000", "5000"})
+    public int watchlistSize;
+
+    private List<QuoteRow> rows;
+    private DecimalFormat dollarFormat;
+    private DecimalFormat dollarFormatWithPlus;
+    private DecimalFormat percentageFormat;
+    private PriceFormatter priceFormatter;
+    private final StringBuilder buffer = new StringBuilder();
+
+    @Setup
+    public void setUp() {
+        String[] symbols = Watchlists.symbols(watchlistSize);
+        List<Stock> stocks = Watchlists.stocks(symbols);
+        rows = new ArrayList<>(watchlistSize);
+        for (int i = 0; i < watchlistSize; i++) {
+            rows.add(QuoteMapper.toRow(symbols[i], stocks.get(i)));
+        }
+        dollarFormat = QuoteFormats.dollarFormat(Locale.US);
+        dollarFormatWithPlus = QuoteFormats.dollarFormatWithPlus(Locale.US);
+        percentageFormat = QuoteFormats.percentageFormat(Locale.US);
+        priceFormatter = PriceFormatter.getInstance(Locale.US);
+
+        for (QuoteRow row : rows) {
+            check(dollarFormat.format(row.price), priceFormatter.formatPrice(row.price));
+            check(dollarFormatWithPlus.format(row.absoluteChange), priceFormatter.formatSignedPrice(row.absoluteChange));
+            check(percentageFormat.format(row.percentageChange / 100),
+                    priceFormatter.formatPercentage(row.percentageChange / 100));
+        }
+    }
+
+    private static void check(String expected, String actual) {
+        if (!expected.equals(actual)) {
+            throw new IllegalStateException("PriceFormatter wrote " + actual + " where DecimalFormat wrote " + expected);
+        }
+    }
+
+    @Benchmark
+    public void sharedFormats(Blackhole blackhole) {
+        for (QuoteRow row : rows) {
+            blackhole.consume(dollarFormat.format(row.price));
+            blackhole.consume(dollarFormatWithPlus.format(row.absoluteChange));
+            blackhole.consume(percentageFormat.format(row.percentageChange / 100));
+        }
+    }
+
+    @Benchmark
+    public void priceFormatter(Blackhole blackhole) {
+        for (QuoteRow row : rows) {
+            blackhole.consume(priceFormatter.formatPrice(row.price));
+            blackhole.consume(priceFormatter.formatSignedPrice(row.absoluteChange));
+            blackhole.consume(priceFormatter.formatPercentage(row.percentageChange / 100));
+        }
+    }
+
+    /**
+     * Appending into one reused buffer, without creating a string per value.
+     */
+    @Benchmark
+    public void priceFormatterAppend(Blackhole blackhole) {
+        for (QuoteRow row : rows) {
+            buffer.setLength(0);
+            priceFormatter.append(buffer, PriceFormatter.Style.PRICE, row.price);
+            priceFormatter.append(buffer, PriceFormatter.Style.SIGNED_PRICE, row.absoluteChange);
+            priceFormatter.append(buffer, PriceFormatter.Style.PERCENTAGE, row.percentageChange / 100);
+            blackhole.consume(buffer.length());
+        }
+    }
+
+    /**
+     * Building the formats for every row, as the widget used to.
+     */
+    @Benchmark
+    public void formatsPerRow(Blackhole blackhole) {
+        for (QuoteRow row : rows) {
+            blackhole.consume(QuoteFormats.dollarFormat(Locale.US).format(row.price));
+            blackhole.consume(QuoteFormats.dollarFormatWithPlus(Locale.US).format(row.absoluteChange));
+            blackhole.consume(QuoteFormats.percentageFormat(Locale.US).format(row.percentageChange / 100));
+        }
+    }
+}
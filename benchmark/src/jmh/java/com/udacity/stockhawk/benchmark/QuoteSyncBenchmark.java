@@ -0,0 +1,91 @@
+package com.udacity.stockhawk.benchmark;
+
+import com.udacity.stockhawk.sync.QuoteMapper;
+import com.udacity.stockhawk.sync.TradingCalendar;
+import com.udacity.stockhawk.utils.HistoryCodec;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import yahoofinance.Stock;
+import yahoofinance.histquotes.HistoricalQuote;
+
+/**
+ * The per-symbol work of a sync that does not touch the network or the
+ * database: mapping quotes, sizing the history windows and converting the
+ * returned bars.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class QuoteSyncBenchmark {
+
+    private static final int DAILY_SESSIONS = 5;
+
+    @Param({"10", "100", "1000", "5000"})
+    public int watchlistSize;
+
+    private final TradingCalendar calendar = new TradingCalendar();
+    private String[] symbols;
+    private List<Stock> stocks;
+    private List<List<HistoricalQuote>> histories;
+
+    @Setup
+    public void setUp() {
+        symbols = Watchlists.symbols(watchlistSize);
+        stocks = Watchlists.stocks(symbols);
+        Random random = Watchlists.random();
+        histories = new ArrayList<>(watchlistSize);
+        for (String symbol : symbols) {
+            histories.add(Watchlists.history(symbol, DAILY_SESSIONS, random));
+        }
+    }
+
+    @Benchmark
+    public void mapQuotes(Blackhole blackhole) {
+        for (int i = 0; i < watchlistSize; i++) {
+            blackhole.consume(QuoteMapper.toRow(symbols[i], stocks.get(i)));
+        }
+    }
+
+    @Benchmark
+    public void sessionWindowStarts(Blackhole blackhole) {
+        Calendar now = Calendar.getInstance();
+        for (int i = 0; i < watchlistSize; i++) {
+            blackhole.consume(calendar.getSessionWindowStart(now, DAILY_SESSIONS));
+        }
+    }
+
+    /**
+     * Converts each symbol's daily bars to fixed point and encodes them, as the
+     * sync does before writing the quotes table.
+     */
+    @Benchmark
+    public void convertAndEncodeHistory(Blackhole blackhole) {
+        long[] times = new long[DAILY_SESSIONS];
+        long[] closes = new long[DAILY_SESSIONS];
+        for (List<HistoricalQuote> history : histories) {
+            int count = 0;
+            for (int i = history.size() - 1; i >= 0; i--) {
+                HistoricalQuote bar = history.get(i);
+                times[count] = bar.getDate().getTimeInMillis();
+                closes[count] = HistoryCodec.toFixedPoint(bar.getClose());
+                count++;
+            }
+            blackhole.consume(HistoryCodec.encode(times, closes, count));
+        }
+    }
+}
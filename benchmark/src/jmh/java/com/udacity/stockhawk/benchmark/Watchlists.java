@@ -0,0 +1,105 @@
+package com.udacity.stockhawk.benchmark;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import yahoofinance.Stock;
+import yahoofinance.histquotes.HistoricalQuote;
+import yahoofinance.quotes.stock.StockQuote;
+
+/**
+ * Synthetic watchlists. The same size always produces the same data, so runs are comparable.
+ */
+final class Watchlists {
+
+    private static final long SEED = 42;
+    private static final long DAY_MILLIS = 24L * 60 * 60 * 1000;
+    private static final long FIRST_BAR_MILLIS = 1483315200000L;
+
+    private Watchlists() {
+    }
+
+    static String[] symbols(int size) {
+        String[] symbols = new String[size];
+        for (int i = 0; i < size; i++) {
+            symbols[i] = String.format(Locale.US, "S%04d", i);
+        }
+        return symbols;
+    }
+
+    /**
+     * Quotes as the Yahoo client returns them. Every tenth quote has no day range.
+     */
+    static List<Stock> stocks(String[] symbols) {
+        Random random = new Random(SEED);
+        List<Stock> stocks = new ArrayList<>(symbols.length);
+        for (int i = 0; i < symbols.length; i++) {
+            BigDecimal previousClose = price(random);
+            BigDecimal price = previousClose.add(BigDecimal.valueOf(random.nextInt(2001) - 1000, 2));
+
+            StockQuote quote = new StockQuote(symbols[i]);
+            quote.setPrice(price);
+            quote.setPreviousClose(previousClose);
+            if (i % 10 != 0) {
+                quote.setDayLow(price.subtract(BigDecimal.ONE));
+                quote.setDayHigh(price.add(BigDecimal.ONE));
+            }
+
+            Stock stock = new Stock(symbols[i]);
+            stock.setName(symbols[i] + " Holdings Inc.");
+            stock.setQuote(quote);
+            stocks.add(stock);
+        }
+        return stocks;
+    }
+
+    /**
+     * Daily bars as the Yahoo client returns them, newest first.
+     */
+    static List<HistoricalQuote> history(String symbol, int barCount, Random random) {
+        List<HistoricalQuote> history = new ArrayList<>(barCount);
+        for (int i = barCount - 1; i >= 0; i--) {
+            Calendar date = Calendar.getInstance();
+            date.setTimeInMillis(FIRST_BAR_MILLIS + i * DAY_MILLIS);
+            BigDecimal close = price(random);
+            history.add(new HistoricalQuote(symbol, date, close, close, close, close, close, 1000L));
+        }
+        return history;
+    }
+
+    /**
+     * Bar timestamps in chronological order, one day apart.
+     */
+    static long[] times(int barCount) {
+        long[] times = new long[barCount];
+        for (int i = 0; i < barCount; i++) {
+            times[i] = FIRST_BAR_MILLIS + i * DAY_MILLIS;
+        }
+        return times;
+    }
+
+    /**
+     * Fixed-point closes following a random walk.
+     */
+    static long[] closes(int barCount, Random random) {
+        long[] closes = new long[barCount];
+        long close = 100 * 10000L + random.nextInt(9000 * 10000);
+        for (int i = 0; i < barCount; i++) {
+            close = Math.max(1, close + random.nextInt(40001) - 20000);
+            closes[i] = close;
+        }
+        return closes;
+    }
+
+    static Random random() {
+        return new Random(SEED);
+    }
+
+    private static BigDecimal price(Random random) {
+        return BigDecimal.valueOf(100 + random.nextInt(900000), 2);
+    }
+}
@@ -0,0 +1,130 @@
+package com.udacity.stockhawk.sync;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+import yahoofinance.histquotes.HistoricalQuote;
+import yahoofinance.histquotes.Interval;
+
+/**
+ * The network side of a full sync against {@link FakeQuoteSource}: the
+ * watchlist's quotes in shards through {@link ShardedQuoteFetcher}, then a
+ * monthly, weekly and daily history request per symbol streamed through
+ * {@link SyncPipeline}, as {@link QuoteSyncJob} issues them. Lives in the sync
+ * package to reach both.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SyncFetchBenchmark {
+
+    private static final Interval[] INTERVALS = {Interval.MONTHLY, Interval.WEEKLY, Interval.DAILY};
+    private static final int UNIVERSE_SIZE = 10000;
+
+    @Param({"10", "100", "1000", "5000"})
+    public int watchlistSize;
+
+    @Param({"0", "1"})
+    public long latencyMillis;
+
+    @Param({"0", "0.05"})
+    public double failureRate;
+
+    private FakeQuoteSource source;
+    private ShardedQuoteFetcher quoteFetcher;
+    private String[] symbols;
+    private Calendar[] from;
+    private Calendar to;
+
+    @Setup
+    public void setUp() {
+        source = new FakeQuoteSource(42, UNIVERSE_SIZE)
+                .withLatency(latencyMillis, 0)
+                .withFailureRate(failureRate);
+        symbols = source.symbols(watchlistSize);
+        quoteFetcher = new ShardedQuoteFetcher();
+
+        to = Calendar.getInstance();
+        from = new Calendar[INTERVALS.length];
+        from[0] = Calendar.getInstance();
+        from[0].add(Calendar.MONTH, -4);
+        from[1] = Calendar.getInstance();
+        from[1].add(Calendar.DAY_OF_YEAR, -35);
+        from[2] = new TradingCalendar().getSessionWindowStart(to, 5);
+    }
+
+    /**
+     * The quote tier alone: the watchlist's quotes in concurrent shards.
+     *
+     * @return the number of quotes received, so the work cannot be optimized away.
+     */
+    @Benchmark
+    public int fetchQuotes() {
+        SyncFetcher fetcher = new SyncFetcher();
+        try {
+            return quoteFetcher.fetch(source, fetcher, symbols).rows.size();
+        } finally {
+            fetcher.shutdown();
+        }
+    }
+
+    /**
+     * @return the number of bars received, so the work cannot be optimized away.
+     */
+    @Benchmark
+    public int fetchWatchlist() {
+        SyncFetcher fetcher = new SyncFetcher();
+        try {
+            List<Callable<Integer>> tasks = new ArrayList<>();
+            for (String symbol : quoteFetcher.fetch(source, fetcher, symbols).rows.keySet()) {
+                tasks.add(historyTask(symbol));
+            }
+
+            final int[] bars = new int[1];
+            new SyncPipeline<Integer>(fetcher, source.getHistoryHost()).run(tasks.iterator(),
+                    new SyncPipeline.Sink<Integer>() {
+                        @Override
+                        public void persist(List<Integer> batch) {
+                            for (Integer symbolBars : batch) {
+                                bars[0] += symbolBars;
+                            }
+                        }
+
+                        @Override
+                        public void skipped(Exception exception) {
+                            // Counted as a skipped symbol, as the sync does.
+                        }
+                    });
+            return bars[0];
+        } finally {
+            fetcher.shutdown();
+        }
+    }
+
+    private Callable<Integer> historyTask(final String symbol) {
+        return new Callable<Integer>() {
+            @Override
+            public Integer call() throws IOException {
+                int bars = 0;
+                for (int i = 0; i < INTERVALS.length; i++) {
+                    List<HistoricalQuote> history = source.getHistory(symbol, from[i], to, INTERVALS[i]);
+                    bars += history.size();
+                }
+                return bars;
+            }
+        };
+    }
+}
@@ -0,0 +1,115 @@
+package com.udacity.stockhawk.ui;
+
+import com.udacity.stockhawk.data.QuoteRow;
+import com.udacity.stockhawk.utils.QuoteFormats;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Binding every row of the stock list once, as scrolling through it does: the
+ * old bind, which formatted each row's values and descriptions on the spot,
+ * against copying the fields of {@link StockItem}s formatted once per snapshot.
+ * The snapshot formatting itself, which now runs in the background, is measured
+ * separately. Run with the gc profiler to compare allocation per bind. Lives in
+ * the ui package to reach the package-private item classes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class StockBindBenchmark {
+
+    private static final String PRICE_DESCRIPTION = "Stock price %s";
+    private static final String INCREASE_DESCRIPTION = "Stock value increased by %s";
+    private static final String DECREASE_DESCRIPTION = "Stock value decreased by %s";
+    private static final String PRICE_TRANSITION_NAME = "TN_STOCK_PRICE";
+    private static final String CHANGE_TRANSITION_NAME = "TN_STOCK_CHANGE";
+    private static final String ABSOLUTE_MODE = "absolute";
+
+    @Param({"100", "1000"})
+    public int watchlistSize;
+
+    private List<QuoteRow> rows;
+    private List<StockItem> items;
+    private DecimalFormat dollarFormat;
+    private DecimalFormat percentageFormat;
+    private String displayMode;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        rows = new ArrayList<>(watchlistSize);
+        for (int i = 0; i < watchlistSize; i++) {
+            float price = 10 + random.nextInt(100000) / 100f;
+            float change = (random.nextInt(2000) - 1000) / 100f;
+            rows.add(new QuoteRow("SYM" + i, "Company " + i, price, change, change * 100 / price,
+                    price - 1, price + 1));
+        }
+        dollarFormat = QuoteFormats.dollarFormat(Locale.US);
+        percentageFormat = QuoteFormats.percentageFormat(Locale.US);
+        displayMode = new String(ABSOLUTE_MODE.toCharArray());
+        items = newFactory().create(rows);
+    }
+
+    /**
+     * What each bind used to do, short of reading the display mode from the
+     * preferences, which a plain JVM cannot measure.
+     */
+    @Benchmark
+    public void formatOnBind(Blackhole blackhole) {
+        for (int position = 0; position < rows.size(); position++) {
+            QuoteRow quote = rows.get(position);
+            String price = dollarFormat.format(quote.price);
+            blackhole.consume(String.format(PRICE_DESCRIPTION, price));
+            String change = dollarFormat.format(quote.absoluteChange);
+            String percentage = percentageFormat.format(quote.percentageChange / 100);
+            String shown = displayMode.equals(ABSOLUTE_MODE) ? change : percentage;
+            blackhole.consume(String.format(quote.absoluteChange > 0 ? INCREASE_DESCRIPTION : DECREASE_DESCRIPTION,
+                    shown));
+            blackhole.consume(PRICE_TRANSITION_NAME + position);
+            blackhole.consume(CHANGE_TRANSITION_NAME + position);
+        }
+    }
+
+    @Benchmark
+    public void bindPrecomputed(Blackhole blackhole) {
+        for (int position = 0; position < items.size(); position++) {
+            StockItem item = items.get(position);
+            blackhole.consume(item.symbol);
+            blackhole.consume(item.price);
+            blackhole.consume(item.priceDescription);
+            blackhole.consume(item.change);
+            blackhole.consume(item.changeDescription);
+            blackhole.consume(item.gain);
+            blackhole.consume(item.priceTransitionName);
+            blackhole.consume(item.changeTransitionName);
+        }
+    }
+
+    /**
+     * Formatting a new snapshot, once per sync or display mode change.
+     */
+    @Benchmark
+    public List<StockItem> formatSnapshot() {
+        return newFactory().create(rows);
+    }
+
+    private static StockItemFactory newFactory() {
+        return new StockItemFactory(Locale.US, true, PRICE_DESCRIPTION, INCREASE_DESCRIPTION, DECREASE_DESCRIPTION,
+                PRICE_TRANSITION_NAME, CHANGE_TRANSITION_NAME);
+    }
+}